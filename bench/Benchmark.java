@@ -0,0 +1,388 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Benchmark do simulador: carga do binário, decodificação e execução completa dos programas
+// sintéticos. Uso: java -cp <classes> Benchmark [filtro] [--forks N]
+//
+// Segue a metodologia do JMH sem depender dele (as classes estão no pacote sem nome, que o
+// código gerado pelo JMH não consegue importar): cada linha roda em FORKS JVMs novas, cada uma
+// com WARMUP_ITERATIONS iterações descartadas e MEASURE_ITERATIONS medidas uma a uma; o
+// resultado de cada iteração vai para sink, o equivalente do Blackhole. O relatório traz a média
+// e o desvio padrão das amostras de todos os forks. --forks 0 mede na própria JVM.
+public class Benchmark {
+    private static final int DEFAULT_FORKS = 3;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURE_ITERATIONS = 10;
+    private static final int OUTER_ITERATIONS = 200;
+    private static final int DECODE_REPEATS = 10000;
+    private static final int LOAD_REPEATS = 200;
+    private static final int LANES = 64;
+    private static final int LANE_OUTER_ITERATIONS = 20;
+    private static final int[] MULTICORE_CORES = {1, 2, 4};
+    private static final int FUZZ_PROGRAMS = 200;
+
+    private static final PrintStream REAL_OUT = System.out;
+    private static final String SAMPLE_PREFIX = "amostra ";
+
+    private static int forks = DEFAULT_FORKS;
+    // linha medida por este processo quando ele é um fork (null no processo principal)
+    private static String forkTarget;
+
+    // impede que o JIT descarte o trabalho medido
+    private static volatile long sink;
+
+    private interface Medicao {
+        // retorna a quantidade de operações (ou instruções guest) feitas na iteração
+        long run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String filter = "";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--forks":
+                    forks = Integer.parseInt(args[++i]);
+                    break;
+                case "--fork":
+                    forkTarget = args[++i];
+                    break;
+                default:
+                    filter = args[i];
+                    break;
+            }
+        }
+
+        Map<String, short[]> workloads = new LinkedHashMap<>();
+        workloads.put("alu", ProgramasSinteticos.alu(OUTER_ITERATIONS));
+        workloads.put("memoria", ProgramasSinteticos.memorySweep(OUTER_ITERATIONS));
+        workloads.put("desvios", ProgramasSinteticos.branchy(OUTER_ITERATIONS));
+        workloads.put("syscalls", ProgramasSinteticos.syscalls(OUTER_ITERATIONS));
+
+        if (forkTarget == null) {
+            REAL_OUT.printf("%-34s %16s %14s %14s%n", "benchmark", "ops/s", "desvio", "bytes/op");
+        }
+
+        Path binary = writeTempBinary(workloads.get("alu"));
+        try {
+            bench("load_binary", filter, "arquivos/s", () -> {
+                sink += new Lib().load_binary(binary.toString()).length;
+                return 1;
+            });
+            bench("memoria.mapeada", filter, "arquivos/s", () -> {
+                sink += new Memoria(new Lib().map_binary(binary.toString())).getInstructionCount();
+                return 1;
+            });
+        } finally {
+            Files.deleteIfExists(binary);
+        }
+
+        byte[] image = toImage(workloads.get("alu"));
+        bench("memoria.bytes", filter, "imagens/s", () -> {
+            sink += new Memoria(image).getInstructionCount();
+            return 1;
+        });
+
+        short[] decodeInput = workloads.get("alu");
+        bench("decode.instrucao", filter, "instr/s", () -> {
+            long acc = 0;
+            for (int repeat = 0; repeat < DECODE_REPEATS; repeat++) {
+                for (short raw : decodeInput) {
+                    Instrucao instr = new Instrucao(raw);
+                    acc += instr.getOpcode() + instr.getRd() + instr.getImmediateUnsigned();
+                }
+            }
+            sink += acc;
+            return (long) decodeInput.length * DECODE_REPEATS;
+        });
+
+        // montagem do Processador (decodificação, blocos e fusão) de um programa que ocupa a área
+        // de instruções inteira, refeita a cada vez ou lida do CacheProgramas já aquecido
+        Memoria fullProgram = new Memoria(fillInstructionArea(workloads.values()));
+        Configuracao analysis = new Configuracao().motor(Motor.BLOCOS).verbose(false).saida(new SaidaNula());
+        bench("carga.analise", filter, "programas/s", () -> {
+            for (int repeat = 0; repeat < LOAD_REPEATS; repeat++) {
+                sink += new Processador(fullProgram, new Registrador(), analysis).getPc();
+            }
+            return LOAD_REPEATS;
+        });
+        Path cacheDir = Files.createTempDirectory("cache-programas");
+        try {
+            Configuracao cached = analysis.copy().programCache(new CacheProgramas(cacheDir));
+            bench("carga.analise.cache", filter, "programas/s", () -> {
+                for (int repeat = 0; repeat < LOAD_REPEATS; repeat++) {
+                    sink += new Processador(fullProgram, new Registrador(), cached).getPc();
+                }
+                return LOAD_REPEATS;
+            });
+        } finally {
+            try (var entries = Files.list(cacheDir)) {
+                for (Path entry : (Iterable<Path>) entries::iterator) {
+                    Files.delete(entry);
+                }
+            }
+            Files.delete(cacheDir);
+        }
+
+        for (Map.Entry<String, short[]> workload : workloads.entrySet()) {
+            for (Motor motor : Motor.values()) {
+                for (boolean fusion : new boolean[] {false, true}) {
+                    String name = "run." + workload.getKey() + "." + motor.name().toLowerCase()
+                            + (fusion ? ".fusao" : "");
+                    short[] program = workload.getValue();
+                    bench(name, filter, "instr guest/s", () -> runProgram(program, motor, fusion));
+                }
+            }
+            // custo do registro de desfazer, comparável com run.<carga>.interpretador
+            short[] program = workload.getValue();
+            bench("run." + workload.getKey() + ".historico", filter, "instr guest/s",
+                    () -> runProgram(program, new Configuracao().history(true)));
+            // laço observado com um ouvinte vazio; as linhas run.* acima não instalam ouvinte e
+            // rodam o mesmo laço de antes da API de ouvintes. Compare versões pelas médias de
+            // vários forks: uma diferença menor que a coluna desvio não é uma regressão medida
+            bench("run." + workload.getKey() + ".ouvinte", filter, "instr guest/s",
+                    () -> runProgram(program, new Configuracao(), new OuvinteExecucao() { }));
+        }
+
+        // mesmo programa com LANES entradas diferentes (R5 inicial): um Processador por entrada
+        // contra ExecucaoLockstep; em "desvios" metade das lanes começa no outro lado do desvio
+        Map<String, short[]> batched = new LinkedHashMap<>();
+        batched.put("alu", ProgramasSinteticos.alu(LANE_OUTER_ITERATIONS));
+        batched.put("memoria", ProgramasSinteticos.memorySweep(LANE_OUTER_ITERATIONS));
+        batched.put("desvios", ProgramasSinteticos.branchy(LANE_OUTER_ITERATIONS));
+        for (Map.Entry<String, short[]> workload : batched.entrySet()) {
+            short[] program = workload.getValue();
+            bench("lote" + LANES + "." + workload.getKey() + ".escalar", filter, "instr guest/s",
+                    () -> runScalarLanes(program));
+            bench("lote" + LANES + "." + workload.getKey() + ".lockstep", filter, "instr guest/s",
+                    () -> runLockstepLanes(program));
+        }
+
+        // motor de blocos verificado contra o interpretador de referência, comparável com
+        // run.<carga>.blocos.fusao; fuzz.* conta programas aleatórios verificados numa thread
+        for (ModoVerificacao mode : ModoVerificacao.values()) {
+            String suffix = "." + mode.name().toLowerCase();
+            VerificadorDiferencial verificador = new VerificadorDiferencial(
+                    new Configuracao().motor(Motor.BLOCOS).maxCycles(Long.MAX_VALUE), mode);
+            for (String workload : new String[] {"alu", "memoria", "desvios"}) {
+                short[] program = workloads.get(workload);
+                bench("verificacao." + workload + suffix, filter, "instr guest/s", () -> {
+                    if (verificador.verify(program, null, null) != null) {
+                        throw new IllegalStateException("Divergência no programa sintético " + workload);
+                    }
+                    return verificador.getCycles();
+                });
+            }
+            FuzzerDiferencial fuzzer = new FuzzerDiferencial(new Configuracao().motor(Motor.BLOCOS), mode, 1, 1);
+            bench("fuzz" + suffix, filter, "programas/s", () -> {
+                FuzzerDiferencial.Resultado resultado = fuzzer.run(FUZZ_PROGRAMS);
+                if (resultado.getDivergencia() != null) {
+                    throw new IllegalStateException("Divergência no fuzzer: " + resultado.getDivergencia());
+                }
+                return resultado.getPrograms();
+            });
+        }
+
+        // cada núcleo roda o programa inteiro sobre a mesma MemoriaCompartilhada; em "memoria"
+        // todos varrem os mesmos endereços e disputam as mesmas linhas de cache
+        for (String workload : new String[] {"alu", "memoria"}) {
+            short[] program = workloads.get(workload);
+            for (int cores : MULTICORE_CORES) {
+                bench("multicore." + workload + "." + cores, filter, "instr guest/s",
+                        () -> runMulticore(program, cores));
+            }
+        }
+    }
+
+    private static short laneInput(int lane) {
+        return (short) (lane % 2 == 0 ? lane : 1);
+    }
+
+    private static long runScalarLanes(short[] program) throws ProcessorException {
+        long instructions = 0;
+        for (int lane = 0; lane < LANES; lane++) {
+            Registrador registrador = new Registrador();
+            registrador.set(5, laneInput(lane));
+            Configuracao config = new Configuracao().verbose(false).maxCycles(Long.MAX_VALUE)
+                    .saida(new SaidaBufferizada(OutputStream.nullOutputStream()));
+            Processador processador = new Processador(new Memoria(program), registrador, config);
+            if (processador.runUntilHalt() != StatusExecucao.ENCERRADO) {
+                throw new IllegalStateException("Programa sintético não encerrou: " + processador.getStatus());
+            }
+            instructions += processador.getCycleCount();
+        }
+        return instructions;
+    }
+
+    private static long runLockstepLanes(short[] program) throws ProcessorException {
+        ExecucaoLockstep lockstep = new ExecucaoLockstep(program, LANES,
+                new Configuracao().verbose(false).maxCycles(Long.MAX_VALUE));
+        for (int lane = 0; lane < LANES; lane++) {
+            lockstep.setRegister(lane, 5, laneInput(lane));
+        }
+        long instructions = 0;
+        for (ResultadoTarefa result : lockstep.run()) {
+            if (result.getStatus() != StatusExecucao.ENCERRADO) {
+                throw new IllegalStateException("Programa sintético não encerrou: " + result.getStatus());
+            }
+            instructions += result.getCycles();
+        }
+        return instructions;
+    }
+
+    private static long runMulticore(short[] program, int cores) throws Exception {
+        Configuracao config = new Configuracao().verbose(false).maxCycles(Long.MAX_VALUE);
+        SistemaMulticore sistema = new SistemaMulticore(
+                new MemoriaCompartilhada(program, Memoria.DEFAULT_ADDRESS_BITS), cores, config);
+        long instructions = 0;
+        for (ResultadoTarefa result : sistema.run()) {
+            if (result.getStatus() != StatusExecucao.ENCERRADO) {
+                throw new IllegalStateException("Programa sintético não encerrou: " + result.getStatus());
+            }
+            instructions += result.getCycles();
+        }
+        return instructions;
+    }
+
+    private static long runProgram(short[] program, Motor motor, boolean fusion) throws ProcessorException {
+        return runProgram(program, new Configuracao().motor(motor).fusion(fusion));
+    }
+
+    private static long runProgram(short[] program, Configuracao base, OuvinteExecucao... listeners)
+            throws ProcessorException {
+        // a saída dos syscalls é codificada normalmente e descartada no fim do buffer
+        Configuracao config = base.verbose(false).maxCycles(Long.MAX_VALUE)
+                .saida(new SaidaBufferizada(OutputStream.nullOutputStream()));
+        Processador processador = new Processador(new Memoria(program), new Registrador(), config);
+        for (OuvinteExecucao listener : listeners) {
+            processador.addListener(listener);
+        }
+        if (processador.runUntilHalt() != StatusExecucao.ENCERRADO) {
+            throw new IllegalStateException("Programa sintético não encerrou: " + processador.getStatus());
+        }
+        return processador.getCycleCount();
+    }
+
+    private static void bench(String name, String filter, String unit, Medicao medicao) throws Exception {
+        if (forkTarget != null) {
+            if (name.equals(forkTarget)) {
+                for (double[] sample : measure(medicao)) {
+                    REAL_OUT.println(SAMPLE_PREFIX + sample[0] + " " + sample[1]);
+                }
+            }
+            return;
+        }
+        if (!name.contains(filter)) {
+            return;
+        }
+        report(name, unit, forks == 0 ? measure(medicao) : runForks(name));
+    }
+
+    // {ops/s, bytes/op} de cada iteração medida
+    private static List<double[]> measure(Medicao medicao) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += medicao.run();
+        }
+
+        List<double[]> samples = new ArrayList<>();
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            long ops = medicao.run();
+            long elapsed = System.nanoTime() - start;
+            long bytes = allocatedBytes() - bytesBefore;
+            sink += ops;
+            samples.add(new double[] {ops / (elapsed / 1_000_000_000.0), (double) bytes / ops});
+        }
+        return samples;
+    }
+
+    // mede a linha em forks JVMs novas, com o mesmo classpath e as mesmas opções da JVM atual
+    private static List<double[]> runForks(String name) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Benchmark.class.getName());
+        command.add("--fork");
+        command.add(name);
+
+        List<double[]> samples = new ArrayList<>();
+        for (int fork = 0; fork < forks; fork++) {
+            Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            try (BufferedReader reader = process.inputReader()) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(SAMPLE_PREFIX)) {
+                        String[] fields = line.substring(SAMPLE_PREFIX.length()).split(" ");
+                        samples.add(new double[] {Double.parseDouble(fields[0]), Double.parseDouble(fields[1])});
+                    }
+                }
+            }
+            if (process.waitFor() != 0) {
+                throw new IllegalStateException("Fork de " + name + " terminou com código " + process.exitValue());
+            }
+        }
+        return samples;
+    }
+
+    // média e desvio padrão (amostral) das ops/s; bytes/op pela média
+    private static void report(String name, String unit, List<double[]> samples) {
+        double mean = 0;
+        double bytes = 0;
+        for (double[] sample : samples) {
+            mean += sample[0];
+            bytes += sample[1];
+        }
+        mean /= samples.size();
+        bytes /= samples.size();
+        double squares = 0;
+        for (double[] sample : samples) {
+            squares += (sample[0] - mean) * (sample[0] - mean);
+        }
+        double deviation = samples.size() > 1 ? Math.sqrt(squares / (samples.size() - 1)) : 0;
+        REAL_OUT.printf("%-34s %16.0f %14.0f %14.2f  (%s)%n", name, mean, deviation, bytes, unit);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+
+    // as cargas sintéticas repetidas até DATA_START palavras (só para análise, não para execução)
+    private static short[] fillInstructionArea(Iterable<short[]> programs) {
+        short[] filled = new short[Memoria.DATA_START];
+        int position = 0;
+        while (position < filled.length) {
+            for (short[] program : programs) {
+                int count = Math.min(program.length, filled.length - position);
+                System.arraycopy(program, 0, filled, position, count);
+                position += count;
+            }
+        }
+        return filled;
+    }
+
+    private static byte[] toImage(short[] program) {
+        ByteBuffer buffer = ByteBuffer.allocate(program.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asShortBuffer().put(program);
+        return buffer.array();
+    }
+
+    private static Path writeTempBinary(short[] program) throws IOException {
+        Path file = Files.createTempFile("benchmark", ".bin");
+        Files.write(file, toImage(program));
+        return file;
+    }
+}
@@ -0,0 +1,105 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Programas-guest gerados para o benchmark. Todos seguem o mesmo esqueleto de dois laços:
+// R0 serviço/rascunho, R1 contador interno, R2 limite interno, R3 = 1,
+// R4 condição, R5 acumulador, R6 contador externo, R7 limite externo.
+public class ProgramasSinteticos {
+    private static final int INNER_ITERATIONS = 1000;
+
+    private interface Corpo {
+        void emit(ProgramasSinteticos p, int start);
+    }
+
+    private final List<Short> code = new ArrayList<>();
+
+    private int here() {
+        return code.size();
+    }
+
+    private void emit(short instruction) {
+        code.add(instruction);
+    }
+
+    private void r(int opcode, int rd, int rs1, int rs2) {
+        emit(Instrucao.encodeR(opcode, rd, rs1, rs2));
+    }
+
+    private void i(int opcode, int rd, int immediate) {
+        emit(Instrucao.encodeI(opcode, rd, immediate));
+    }
+
+    private short[] toArray() {
+        short[] program = new short[code.size()];
+        for (int k = 0; k < program.length; k++) {
+            program[k] = code.get(k);
+        }
+        return program;
+    }
+
+    private static short[] nestedLoop(int outerIterations, int innerIterations, Corpo body) {
+        if (outerIterations < 1 || outerIterations > 1023 || innerIterations < 1 || innerIterations > 1023) {
+            throw new IllegalArgumentException("Iterações devem estar entre 1 e 1023");
+        }
+        ProgramasSinteticos p = new ProgramasSinteticos();
+        p.i(3, 3, 1);
+        p.i(3, 2, innerIterations);
+        p.i(3, 7, outerIterations);
+        p.i(3, 6, 0);
+        int outer = p.here();
+        p.i(3, 1, 0);
+        int inner = p.here();
+        body.emit(p, inner);
+        p.r(0, 1, 1, 3);       // R1++
+        p.r(5, 4, 1, 2);       // R4 = R1 != R2
+        p.i(1, 4, inner);
+        p.r(0, 6, 6, 3);       // R6++
+        p.r(5, 4, 6, 7);
+        p.i(1, 4, outer);
+        p.i(3, 0, 0);
+        p.r(63, 0, 0, 0);      // syscall 0: encerra
+        return p.toArray();
+    }
+
+    public static short[] alu(int outerIterations) {
+        return nestedLoop(outerIterations, INNER_ITERATIONS, (p, start) -> {
+            p.r(0, 5, 5, 1);   // ADD
+            p.r(2, 0, 5, 3);   // MUL
+            p.r(1, 5, 0, 1);   // SUB
+            p.r(0, 5, 5, 3);   // ADD
+            p.r(2, 5, 5, 5);   // MUL
+            p.r(3, 0, 5, 3);   // DIV por R3 = 1
+            p.r(4, 0, 5, 1);   // CMP_EQ
+        });
+    }
+
+    public static short[] memorySweep(int outerIterations) {
+        return nestedLoop(outerIterations, INNER_ITERATIONS, (p, start) -> {
+            p.r(16, 0, 1, 5);  // MEM[R1] = R5
+            p.r(15, 0, 1, 0);  // R0 = MEM[R1]
+            p.r(0, 5, 5, 0);
+            p.r(16, 0, 1, 5);
+            p.r(15, 5, 1, 0);
+        });
+    }
+
+    public static short[] branchy(int outerIterations) {
+        return nestedLoop(outerIterations, INNER_ITERATIONS, (p, start) -> {
+            p.r(1, 5, 3, 5);   // R5 = 1 - R5 (alterna 0/1)
+            p.i(1, 5, start + 3);
+            p.r(0, 0, 0, 3);
+            p.r(4, 4, 5, 3);   // R4 = R5 == 1
+            p.i(1, 4, start + 6);
+            p.r(1, 0, 0, 3);
+        });
+    }
+
+    public static short[] syscalls(int outerIterations) {
+        return nestedLoop(outerIterations, 100, (p, start) -> {
+            p.i(3, 0, 3);      // print_int R1
+            p.r(63, 0, 0, 0);
+            p.i(3, 0, 2);      // newline
+            p.r(63, 0, 0, 0);
+        });
+    }
+}
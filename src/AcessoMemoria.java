@@ -0,0 +1,56 @@
+// Leitura e escrita da memória durante a execução, comuns à Memoria de um núcleo e à
+// MemoriaCompartilhada de SistemaMulticore. Checkpoints e o hash de conteúdo ficam só na Memoria:
+// na memória compartilhada eles exigiriam parar todos os núcleos.
+public interface AcessoMemoria {
+
+    // acessos do caminho quente: um endereço inválido vira Memoria.FAULT/false, sem exceção
+    int tryReadInstruction(int address);
+
+    int tryReadData(int address);
+
+    // false quando o endereço é inválido; nada é escrito nesse caso
+    boolean tryWriteData(int address, short value);
+
+    // operações atômicas das syscalls 14 a 16: devolvem o valor anterior ou Memoria.FAULT
+    int getAndAddData(int address, short delta);
+
+    int compareAndExchangeData(int address, short expected, short value);
+
+    int getAndSetData(int address, short value);
+
+    // barreira da syscall 13
+    void fence();
+
+    int getInstructionCount();
+
+    int getAddressBits();
+
+    // palavras endereçáveis por readData/writeData (a partir de DATA_START)
+    int getDataWords();
+
+    int getResidentPages();
+
+    int getTotalPages();
+
+    default short readInstruction(int address) throws ProcessorException {
+        int value = tryReadInstruction(address);
+        if (value == Memoria.FAULT) {
+            throw new ProcessorException("Endereço de instrução inválido: " + address);
+        }
+        return (short) value;
+    }
+
+    default short readData(int address) throws ProcessorException {
+        int value = tryReadData(address);
+        if (value == Memoria.FAULT) {
+            throw new ProcessorException("Endereço de dados inválido: " + address);
+        }
+        return (short) value;
+    }
+
+    default void writeData(int address, short value) throws ProcessorException {
+        if (!tryWriteData(address, value)) {
+            throw new ProcessorException("Endereço de dados inválido para escrita: " + address);
+        }
+    }
+}
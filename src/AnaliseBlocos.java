@@ -0,0 +1,62 @@
+public class AnaliseBlocos {
+    private final int size;
+    private final boolean[] leader;
+    private final boolean[] terminator;
+    // fim (exclusivo) do trecho sem desvios que começa em cada PC
+    private final int[] bodyEnd;
+
+    public AnaliseBlocos(ProgramaDecodificado programa) {
+        this.size = programa.size();
+        this.leader = new boolean[size];
+        this.terminator = new boolean[size];
+        this.bodyEnd = new int[size];
+
+        if (size > 0) {
+            leader[0] = true;
+        }
+        for (int pc = 0; pc < size; pc++) {
+            terminator[pc] = !isStraightLine(programa, pc);
+            if (terminator[pc] && pc + 1 < size) {
+                leader[pc + 1] = true;
+            }
+            if (!programa.isFormatR(pc) && programa.getOpcode(pc) <= 1) { // JUMP, JUMP_COND
+                int target = programa.getImmediateUnsigned(pc);
+                if (target < size) {
+                    leader[target] = true;
+                }
+            }
+        }
+
+        for (int pc = size - 1; pc >= 0; pc--) {
+            if (terminator[pc]) {
+                bodyEnd[pc] = pc;
+            } else if (pc + 1 == size || leader[pc + 1]) {
+                bodyEnd[pc] = pc + 1;
+            } else {
+                bodyEnd[pc] = bodyEnd[pc + 1];
+            }
+        }
+    }
+
+    // análise gravada por CacheProgramas
+    AnaliseBlocos(boolean[] leader, boolean[] terminator, int[] bodyEnd) {
+        this.size = leader.length;
+        this.leader = leader;
+        this.terminator = terminator;
+        this.bodyEnd = bodyEnd;
+    }
+
+    // instruções que nunca desviam o fluxo: ALU, LOAD, STORE e MOV
+    static boolean isStraightLine(ProgramaDecodificado programa, int pc) {
+        int opcode = programa.getOpcode(pc);
+        if (programa.isFormatR(pc)) {
+            return opcode <= 5 || opcode == 15 || opcode == 16;
+        }
+        return opcode == 3;
+    }
+
+    public int size() { return size; }
+    public boolean isLeader(int pc) { return leader[pc]; }
+    public boolean isTerminator(int pc) { return terminator[pc]; }
+    public int getBodyEnd(int pc) { return bodyEnd[pc]; }
+}
@@ -0,0 +1,368 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+// Cache em disco da forma analisada dos programas (Configuracao.programCache): tabelas
+// pré-decodificadas, blocos básicos e pares de fusão, para que execuções repetidas do mesmo
+// binário (p.ex. a CI rodando os mesmos programas a cada commit) não refaçam a análise.
+//
+// A chave é o SHA-256 das palavras que a análise cobre (as instruções abaixo de DATA_START);
+// cada entrada é um arquivo <chave>.img no formato abaixo, little-endian, com as seções
+// alinhadas em 8 bytes:
+//
+//   0  int   MAGIC
+//   4  int   VERSION
+//   8  int   size (instruções analisadas)
+//   12 int   CRC32C do corpo (do byte 48 ao fim do arquivo)
+//   16 32 B  chave
+//   48 raw short[size], format, opcode, rd, rs1, rs2 byte[size], immediate short[size],
+//      leader, terminator byte[size], bodyEnd int[size], kinds de fusão byte[size]
+//
+// As imagens são imutáveis e compartilhadas pelos Processadores; as RESIDENT_ENTRIES usadas mais
+// recentemente ficam também em memória, e é delas que vem o ganho num processo já aquecido (lote,
+// servidor). O arquivo só serve à partida fria de um processo novo, e mesmo aí não ganha da
+// análise de um programa que ocupa DATA_START inteira: nesta máquina a leitura custa ~30 µs
+// contra ~18 µs aquecido, e ~110 ms contra ~13 ms numa JVM nova, quase tudo na inicialização do
+// SHA-256 e das classes de E/S. O primeiro acerto de cada processo
+// atualiza a data de modificação do arquivo; ao gravar uma entrada nova, as menos usadas
+// recentemente são apagadas até o diretório caber em maxBytes. Uma entrada de outra versão ou
+// outra chave conta como falta e é regravada; uma truncada ou com o CRC do corpo errado conta
+// como erro e é apagada antes de ser regravada. Erros de E/S nunca falham a execução, só
+// desligam o cache para aquela carga.
+public class CacheProgramas {
+    public static final long DEFAULT_MAX_BYTES = 256L << 20;
+    static final int MAGIC = 0x50434D53; // "SMCP"
+    static final int VERSION = 2;
+    private static final int HEADER_BYTES = 48;
+    private static final int KEY_BYTES = 32;
+    private static final String SUFFIX = ".img";
+    static final int RESIDENT_ENTRIES = 1024;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    // tamanho ou CRC que não batem com o cabeçalho: o arquivo foi truncado ou alterado
+    private static final class EntradaCorrompida extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        EntradaCorrompida(String message) {
+            super(message);
+        }
+    }
+
+    private final Map<String, Imagem> resident = Collections.synchronizedMap(
+            new LinkedHashMap<String, Imagem>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Imagem> eldest) {
+                    return size() > RESIDENT_ENTRIES;
+                }
+            });
+
+    // forma analisada de um programa, pronta para o Processador
+    public static final class Imagem {
+        final ProgramaDecodificado programa;
+        final AnaliseBlocos analise;
+        final byte[] fusionKinds;
+
+        Imagem(ProgramaDecodificado programa, AnaliseBlocos analise, byte[] fusionKinds) {
+            this.programa = programa;
+            this.analise = analise;
+            this.fusionKinds = fusionKinds;
+        }
+    }
+
+    public CacheProgramas(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    public CacheProgramas(Path directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Tamanho máximo do cache deve ser positivo: " + maxBytes);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    // imagem do programa carregado em memoria, do disco ou analisada agora (e gravada)
+    public Imagem load(AcessoMemoria memoria) throws ProcessorException {
+        byte[] key;
+        try {
+            key = key(memoria);
+        } catch (IOException e) {
+            errors.incrementAndGet();
+            return analyze(new ProgramaDecodificado(memoria));
+        }
+        String name = hex(key);
+        Imagem cached = resident.get(name);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        Path file = directory.resolve(name + SUFFIX);
+        try {
+            Imagem imagem = read(file, key);
+            if (imagem != null) {
+                hits.incrementAndGet();
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                resident.put(name, imagem);
+                return imagem;
+            }
+        } catch (NoSuchFileException e) {
+            // falta comum
+        } catch (EntradaCorrompida e) {
+            errors.incrementAndGet();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // a regravação abaixo ainda substitui o arquivo
+            }
+        } catch (IOException | RuntimeException e) {
+            errors.incrementAndGet();
+        }
+        misses.incrementAndGet();
+        Imagem imagem = analyze(new ProgramaDecodificado(memoria));
+        resident.put(name, imagem);
+        try {
+            write(file, key, imagem);
+            evict(file);
+        } catch (IOException | UncheckedIOException e) {
+            errors.incrementAndGet();
+        }
+        return imagem;
+    }
+
+    static Imagem analyze(ProgramaDecodificado programa) {
+        return new Imagem(programa, new AnaliseBlocos(programa), FusaoInstrucoes.classifyAll(programa));
+    }
+
+    private static byte[] key(AcessoMemoria memoria) throws IOException {
+        int size = Math.min(memoria.getInstructionCount(), Memoria.DATA_START);
+        ByteBuffer words = ByteBuffer.allocate(size * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int pc = 0; pc < size; pc++) {
+            words.putShort((short) memoria.tryReadInstruction(pc));
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(words.array());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 indisponível", e);
+        }
+    }
+
+    private static Imagem read(Path file, byte[] key) throws IOException {
+        // as seções são copiadas para vetores no heap de qualquer forma; mapear o arquivo só
+        // somaria o custo de montar o mapeamento
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < HEADER_BYTES) {
+            throw new EntradaCorrompida("Cabeçalho truncado: " + file);
+        }
+        ByteBuffer image = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (image.getInt(0) != MAGIC || image.getInt(4) != VERSION) {
+            return null;
+        }
+        byte[] stored = new byte[KEY_BYTES];
+        image.get(16, stored);
+        if (!MessageDigest.isEqual(stored, key)) {
+            return null;
+        }
+        int size = image.getInt(8);
+        if (size < 0 || size > Memoria.DATA_START || image.capacity() != fileBytes(size)) {
+            throw new EntradaCorrompida("Tamanho não confere: " + file);
+        }
+        if (image.getInt(12) != bodyChecksum(image)) {
+            throw new EntradaCorrompida("CRC do corpo não confere: " + file);
+        }
+
+        image.position(HEADER_BYTES);
+        short[] raw = shorts(image, size);
+        alignPosition(image);
+        byte[] format = bytes(image, size);
+        byte[] opcode = bytes(image, size);
+        byte[] rd = bytes(image, size);
+        byte[] rs1 = bytes(image, size);
+        byte[] rs2 = bytes(image, size);
+        alignPosition(image);
+        short[] immediate = shorts(image, size);
+        alignPosition(image);
+        boolean[] leader = booleans(image, size);
+        boolean[] terminator = booleans(image, size);
+        alignPosition(image);
+        int[] bodyEnd = new int[size];
+        image.asIntBuffer().get(bodyEnd);
+        image.position(image.position() + size * 4);
+        alignPosition(image);
+        byte[] kinds = bytes(image, size);
+        return new Imagem(new ProgramaDecodificado(raw, format, opcode, rd, rs1, rs2, immediate),
+                new AnaliseBlocos(leader, terminator, bodyEnd), kinds);
+    }
+
+    // grava num arquivo temporário e renomeia, para que leitores concorrentes nunca vejam uma
+    // entrada pela metade
+    private void write(Path file, byte[] key, Imagem imagem) throws IOException {
+        ProgramaDecodificado programa = imagem.programa;
+        AnaliseBlocos analise = imagem.analise;
+        int size = programa.size();
+        ByteBuffer out = ByteBuffer.allocate((int) fileBytes(size)).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(0).put(key);
+
+        out.position(HEADER_BYTES);
+        for (int pc = 0; pc < size; pc++) {
+            out.putShort(programa.getRaw(pc));
+        }
+        alignPosition(out);
+        putBytes(out, size, programa::getFormatBit);
+        putBytes(out, size, programa::getOpcode);
+        putBytes(out, size, programa::getRd);
+        putBytes(out, size, programa::getRs1);
+        putBytes(out, size, programa::getRs2);
+        alignPosition(out);
+        for (int pc = 0; pc < size; pc++) {
+            out.putShort((short) programa.getImmediateUnsigned(pc));
+        }
+        alignPosition(out);
+        putBytes(out, size, pc -> analise.isLeader(pc) ? 1 : 0);
+        putBytes(out, size, pc -> analise.isTerminator(pc) ? 1 : 0);
+        alignPosition(out);
+        for (int pc = 0; pc < size; pc++) {
+            out.putInt(analise.getBodyEnd(pc));
+        }
+        alignPosition(out);
+        putBytes(out, size, pc -> imagem.fusionKinds[pc]);
+        out.putInt(12, bodyChecksum(out));
+
+        Path temp = Files.createTempFile(directory, "tmp", SUFFIX);
+        try {
+            Files.write(temp, out.array());
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // apaga as entradas menos usadas recentemente (menor data de modificação) até caber em
+    // maxBytes; a entrada recém-gravada fica por último
+    private void evict(Path written) throws IOException {
+        List<Path> entries = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path entry : stream) {
+                entries.add(entry);
+                total += Files.size(entry);
+            }
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        entries.sort(Comparator.comparing((Path entry) -> entry.equals(written))
+                .thenComparing(CacheProgramas::lastModified));
+        for (Path entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long size = Files.size(entry);
+            if (Files.deleteIfExists(entry)) {
+                total -= size;
+            }
+        }
+    }
+
+    private static FileTime lastModified(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int bodyChecksum(ByteBuffer image) {
+        CRC32C crc = new CRC32C();
+        crc.update(image.slice(HEADER_BYTES, image.capacity() - HEADER_BYTES));
+        return (int) crc.getValue();
+    }
+
+    private static long fileBytes(int size) {
+        long bytes = HEADER_BYTES;
+        bytes = align(bytes + size * 2L);            // raw
+        bytes = align(bytes + size * 5L);            // format, opcode, rd, rs1, rs2
+        bytes = align(bytes + size * 2L);            // immediate
+        bytes = align(bytes + size * 2L);            // leader, terminator
+        bytes = align(bytes + size * 4L);            // bodyEnd
+        return align(bytes + size);                  // kinds
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static void alignPosition(ByteBuffer buffer) {
+        buffer.position((int) align(buffer.position()));
+    }
+
+    private interface ValorPorPc {
+        int at(int pc);
+    }
+
+    private static void putBytes(ByteBuffer out, int size, ValorPorPc value) {
+        for (int pc = 0; pc < size; pc++) {
+            out.put((byte) value.at(pc));
+        }
+    }
+
+    private static short[] shorts(ByteBuffer image, int size) {
+        short[] values = new short[size];
+        image.asShortBuffer().get(values);
+        image.position(image.position() + size * 2);
+        return values;
+    }
+
+    private static byte[] bytes(ByteBuffer image, int size) {
+        byte[] values = new byte[size];
+        image.get(values);
+        return values;
+    }
+
+    private static boolean[] booleans(ByteBuffer image, int size) {
+        boolean[] values = new boolean[size];
+        for (int pc = 0; pc < size; pc++) {
+            values[pc] = image.get() != 0;
+        }
+        return values;
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder text = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            text.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return text.toString();
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    // cargas em que o disco falhou e a análise foi feita sem o cache
+    public long getErrors() { return errors.get(); }
+    public Path getDirectory() { return directory; }
+}
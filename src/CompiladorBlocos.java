@@ -0,0 +1,356 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Segundo nível do motor de blocos: um bloco quente vira uma classe oculta cujo método run é o
+// corpo do bloco em bytecode linear sobre o short[] dos registradores, com os índices como
+// constantes. O JIT compila cada bloco à parte, sem a chamada de interface por instrução das
+// operações. Um bloco fechado por um JUMP_COND que volta ao seu início é compilado com o desvio,
+// e as voltas do laço ficam dentro do método. O class file é da versão 49 para dispensar o
+// StackMapTable.
+final class CompiladorBlocos {
+    // métodos maiores que isso não são compilados pelo JIT (-XX:-DontCompileHugeMethods)
+    private static final int MAX_CODE_BYTES = 8000;
+
+    // classes compartilhadas entre processadores: o código só depende das instruções do bloco,
+    // e um programa rodado de novo (lote, servidor, benchmark) reusa o código que o JIT já
+    // otimizou. Cheio, o cache para de crescer e os blocos novos são compilados sem entrar nele
+    private static final int MAX_CACHED = 4096;
+    private static final ConcurrentHashMap<String, MotorBlocos.Codigo> CACHE = new ConcurrentHashMap<>();
+
+    private static final int MAX_STACK = 8;
+    // 0 this, 1 registradores, 2 memória, 3 voltas restantes, 4 rascunho, 5 instruções concluídas
+    // nas voltas anteriores
+    private static final int MAX_LOCALS = 6;
+    private static final int ITERATIONS = 3;
+    private static final int SCRATCH = 4;
+    private static final int BASE = 5;
+
+    // constant pool fixo, igual para todos os blocos
+    private static final int THIS_CLASS = 2;
+    private static final int OBJECT_CLASS = 4;
+    private static final int CODIGO_INTERFACE = 6;
+    private static final int INIT_NAME = 7;
+    private static final int VOID_DESCRIPTOR = 8;
+    private static final int OBJECT_INIT = 10;
+    private static final int RUN_NAME = 11;
+    private static final int RUN_DESCRIPTOR = 12;
+    private static final int CODE_ATTRIBUTE = 13;
+    private static final int TRY_READ_DATA = 19;
+    private static final int TRY_WRITE_DATA = 23;
+    private static final int FAULT_CONSTANT = 24;
+    private static final int CONSTANT_POOL_COUNT = 25;
+
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ILOAD = 0x15;
+    private static final int ISTORE = 0x36;
+    private static final int ILOAD_3 = 0x1d;
+    private static final int IINC = 0x84;
+    private static final int ICONST_0 = 0x03;
+    private static final int ICONST_1 = 0x04;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC = 0x12;
+    private static final int SALOAD = 0x35;
+    private static final int SASTORE = 0x56;
+    private static final int IADD = 0x60;
+    private static final int ISUB = 0x64;
+    private static final int IMUL = 0x68;
+    private static final int IDIV = 0x6c;
+    private static final int IFNE = 0x9a;
+    private static final int IFLE = 0x9e;
+    private static final int IF_ICMPEQ = 0x9f;
+    private static final int IF_ICMPNE = 0xa0;
+    private static final int GOTO = 0xa7;
+    private static final int IRETURN = 0xac;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKEINTERFACE = 0xb9;
+
+    private CompiladorBlocos() {
+    }
+
+    // corpo [start, end); com loopJump >= 0 o corpo vai até o JUMP_COND em loopJump, que volta
+    // para start. null quando o bloco é grande demais para o JIT ou a JVM recusa a classe; o
+    // bloco continua nas operações
+    static MotorBlocos.Codigo compile(ProgramaDecodificado programa, int start, int end, int loopJump) {
+        int last = loopJump >= 0 ? loopJump : end - 1;
+        StringBuilder key = new StringBuilder(last + 2 - start).append(loopJump >= 0 ? 'L' : 'B');
+        for (int pc = start; pc <= last; pc++) {
+            key.append((char) programa.getRaw(pc));
+        }
+        MotorBlocos.Codigo codigo = CACHE.get(key.toString());
+        if (codigo != null) {
+            return codigo;
+        }
+        byte[] code = code(programa, start, loopJump >= 0 ? loopJump : end, loopJump);
+        if (code.length > MAX_CODE_BYTES) {
+            return null;
+        }
+        try {
+            Class<?> hidden = MethodHandles.lookup().defineHiddenClass(classFile(code), true).lookupClass();
+            codigo = (MotorBlocos.Codigo) hidden.getDeclaredConstructor().newInstance();
+        } catch (IOException | ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+        if (CACHE.size() < MAX_CACHED) {
+            MotorBlocos.Codigo previous = CACHE.putIfAbsent(key.toString(), codigo);
+            return previous != null ? previous : codigo;
+        }
+        return codigo;
+    }
+
+    // run(short[] r, AcessoMemoria m, int iterations): cada instrução que pode falhar devolve, antes de
+    // alterar o estado, quantas instruções já foram concluídas, contando as voltas anteriores
+    private static byte[] code(ProgramaDecodificado programa, int start, int end, int loopJump) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(ICONST_0);
+        local(out, ISTORE, BASE);
+        int top = out.size();
+        for (int pc = start; pc < end; pc++) {
+            int rd = programa.getRd(pc);
+            int rs1 = programa.getRs1(pc);
+            int rs2 = programa.getRs2(pc);
+            int completed = pc - start;
+            if (!programa.isFormatR(pc)) { // MOV
+                register(out, rd);
+                sipush(out, (short) programa.getImmediateUnsigned(pc));
+                out.write(SASTORE);
+                continue;
+            }
+            switch (programa.getOpcode(pc)) {
+                case 0:
+                    arithmetic(out, rd, rs1, rs2, IADD);
+                    break;
+                case 1:
+                    arithmetic(out, rd, rs1, rs2, ISUB);
+                    break;
+                case 2:
+                    arithmetic(out, rd, rs1, rs2, IMUL);
+                    break;
+                case 3:
+                    read(out, rs2);
+                    local(out, ISTORE, SCRATCH);
+                    local(out, ILOAD, SCRATCH);
+                    fail(out, IFNE, completed);
+                    register(out, rd);
+                    read(out, rs1);
+                    local(out, ILOAD, SCRATCH);
+                    out.write(IDIV);
+                    out.write(SASTORE);
+                    break;
+                case 4:
+                case 5:
+                    register(out, rd);
+                    read(out, rs1);
+                    read(out, rs2);
+                    // 1 se a comparação vale, senão 0
+                    out.write(programa.getOpcode(pc) == 4 ? IF_ICMPNE : IF_ICMPEQ);
+                    u2(out, 7);
+                    out.write(ICONST_1);
+                    out.write(GOTO);
+                    u2(out, 4);
+                    out.write(ICONST_0);
+                    out.write(SASTORE);
+                    break;
+                case 15:
+                    out.write(ALOAD_2);
+                    read(out, rs1);
+                    invokeInterface(out, TRY_READ_DATA, 2);
+                    local(out, ISTORE, SCRATCH);
+                    local(out, ILOAD, SCRATCH);
+                    out.write(LDC);
+                    out.write(FAULT_CONSTANT);
+                    fail(out, IF_ICMPNE, completed);
+                    register(out, rd);
+                    local(out, ILOAD, SCRATCH);
+                    out.write(SASTORE);
+                    break;
+                case 16:
+                    out.write(ALOAD_2);
+                    read(out, rs1);
+                    read(out, rs2);
+                    invokeInterface(out, TRY_WRITE_DATA, 3);
+                    fail(out, IFNE, completed);
+                    break;
+                default:
+                    throw new IllegalStateException("Instrução não traduzível no PC " + pc);
+            }
+        }
+        if (loopJump < 0) {
+            sipush(out, end - start);
+            out.write(IRETURN);
+            return out.toByteArray();
+        }
+        // o JUMP_COND conta como instrução da volta; segue para a próxima volta enquanto houver
+        // voltas e R[rd] == 1. Na saída, quem chamou lê R[rd] para saber se o desvio foi tomado
+        local(out, ILOAD, BASE);
+        sipush(out, end + 1 - start);
+        out.write(IADD);
+        local(out, ISTORE, BASE);
+        out.write(IINC);
+        out.write(ITERATIONS);
+        out.write(-1);
+        out.write(ILOAD_3);
+        out.write(IFLE);
+        u2(out, 11);
+        read(out, programa.getRd(loopJump));
+        out.write(ICONST_1);
+        out.write(IF_ICMPEQ);
+        u2(out, top - (out.size() - 1));
+        local(out, ILOAD, BASE);
+        out.write(IRETURN);
+        return out.toByteArray();
+    }
+
+    private static void local(ByteArrayOutputStream out, int opcode, int index) {
+        out.write(opcode);
+        out.write(index);
+    }
+
+    // r, rd na pilha, para o SASTORE que fecha a instrução
+    private static void register(ByteArrayOutputStream out, int index) {
+        out.write(ALOAD_1);
+        out.write(BIPUSH);
+        out.write(index);
+    }
+
+    private static void read(ByteArrayOutputStream out, int index) {
+        register(out, index);
+        out.write(SALOAD);
+    }
+
+    private static void arithmetic(ByteArrayOutputStream out, int rd, int rs1, int rs2, int opcode) {
+        register(out, rd);
+        read(out, rs1);
+        read(out, rs2);
+        out.write(opcode); // SASTORE trunca para 16 bits, como o (short) das operações
+        out.write(SASTORE);
+    }
+
+    // segue em frente se o desvio for tomado; senão retorna as voltas anteriores + completed
+    private static void fail(ByteArrayOutputStream out, int branch, int completed) {
+        out.write(branch);
+        u2(out, 10);
+        local(out, ILOAD, BASE);
+        sipush(out, completed);
+        out.write(IADD);
+        out.write(IRETURN);
+    }
+
+    // slots dos argumentos, contando o receptor
+    private static void invokeInterface(ByteArrayOutputStream out, int method, int argumentSlots) {
+        out.write(INVOKEINTERFACE);
+        u2(out, method);
+        out.write(argumentSlots);
+        out.write(0);
+    }
+
+    private static void sipush(ByteArrayOutputStream out, int value) {
+        out.write(SIPUSH);
+        u2(out, value);
+    }
+
+    private static void u2(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static byte[] classFile(byte[] code) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(code.length + 512);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(49);
+        constantPool(out);
+        out.writeShort(0x0030); // ACC_FINAL | ACC_SUPER
+        out.writeShort(THIS_CLASS);
+        out.writeShort(OBJECT_CLASS);
+        out.writeShort(1);
+        out.writeShort(CODIGO_INTERFACE);
+        out.writeShort(0); // campos
+        out.writeShort(2); // métodos
+
+        out.writeShort(0x0001); // public <init>()V
+        out.writeShort(INIT_NAME);
+        out.writeShort(VOID_DESCRIPTOR);
+        method(out, 1, 1, new byte[] {
+                (byte) ALOAD_0, (byte) INVOKESPECIAL, 0, (byte) OBJECT_INIT, (byte) RETURN});
+
+        out.writeShort(0x0001); // public int run(short[], AcessoMemoria, int)
+        out.writeShort(RUN_NAME);
+        out.writeShort(RUN_DESCRIPTOR);
+        method(out, MAX_STACK, MAX_LOCALS, code);
+
+        out.writeShort(0); // atributos da classe
+        return bytes.toByteArray();
+    }
+
+    private static void method(DataOutputStream out, int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(1);
+        out.writeShort(CODE_ATTRIBUTE);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0); // tabela de exceções
+        out.writeShort(0); // atributos do Code
+    }
+
+    private static void constantPool(DataOutputStream out) throws IOException {
+        out.writeShort(CONSTANT_POOL_COUNT);
+        utf8(out, "BlocoCompilado");         // 1
+        classRef(out, 1);                    // 2
+        utf8(out, "java/lang/Object");       // 3
+        classRef(out, 3);                    // 4
+        utf8(out, "MotorBlocos$Codigo");     // 5
+        classRef(out, 5);                    // 6
+        utf8(out, "<init>");                 // 7
+        utf8(out, "()V");                    // 8
+        nameAndType(out, 7, 8);              // 9
+        memberRef(out, 10, 4, 9);            // 10
+        utf8(out, "run");                    // 11
+        utf8(out, "([SLAcessoMemoria;I)I");  // 12
+        utf8(out, "Code");                   // 13
+        utf8(out, "AcessoMemoria");          // 14
+        classRef(out, 14);                   // 15
+        utf8(out, "tryReadData");            // 16
+        utf8(out, "(I)I");                   // 17
+        nameAndType(out, 16, 17);            // 18
+        memberRef(out, 11, 15, 18);          // 19
+        utf8(out, "tryWriteData");           // 20
+        utf8(out, "(IS)Z");                  // 21
+        nameAndType(out, 20, 21);            // 22
+        memberRef(out, 11, 15, 22);          // 23
+        out.writeByte(3);                    // 24: Integer FAULT
+        out.writeInt(Memoria.FAULT);
+    }
+
+    private static void utf8(DataOutputStream out, String value) throws IOException {
+        out.writeByte(1);
+        out.writeUTF(value);
+    }
+
+    private static void classRef(DataOutputStream out, int name) throws IOException {
+        out.writeByte(7);
+        out.writeShort(name);
+    }
+
+    private static void nameAndType(DataOutputStream out, int name, int descriptor) throws IOException {
+        out.writeByte(12);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+    }
+
+    // tag 10 para Methodref, 11 para InterfaceMethodref
+    private static void memberRef(DataOutputStream out, int tag, int owner, int nameAndType) throws IOException {
+        out.writeByte(tag);
+        out.writeShort(owner);
+        out.writeShort(nameAndType);
+    }
+}
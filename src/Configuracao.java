@@ -0,0 +1,238 @@
+public class Configuracao {
+    public static final int DEFAULT_MAX_CYCLES = 100000;
+    public static final long DEFAULT_CLOCK_HZ = 1_000_000;
+
+    private boolean debugMode = false;
+    private Motor motor = Motor.INTERPRETADOR;
+    private long maxCycles = DEFAULT_MAX_CYCLES;
+    private long maxTimeMillis = 0; // 0 = sem limite de tempo
+    private boolean verbose = true;
+    private String tracePath = null;
+    private boolean profiling = false;
+    private boolean loopDetection = false;
+    private boolean pipeline = false;
+    private boolean fusion = true;
+    private ConfiguracaoCache cache = null;
+    private TipoPreditor predictor = null;
+    private int predictorEntries = 0; // 0 = padrão do tipo
+    private ModoRelogio clock = ModoRelogio.REAL;
+    private long clockHz = DEFAULT_CLOCK_HZ;
+    private int addressBits = Memoria.DEFAULT_ADDRESS_BITS;
+    private int trapHandler = -1; // -1 = falhas do guest encerram a execução
+    private boolean history = false;
+    private long historySnapshotInterval = HistoricoExecucao.DEFAULT_SNAPSHOT_INTERVAL;
+    private long historyMaxEntries = HistoricoExecucao.DEFAULT_MAX_ENTRIES;
+    private CacheProgramas programCache = null;
+    private DispositivoSaida saida = null; // null = SaidaBufferizada sobre System.out, no charset do console
+
+    public Configuracao copy() {
+        Configuracao copy = new Configuracao();
+        copy.debugMode = debugMode;
+        copy.motor = motor;
+        copy.maxCycles = maxCycles;
+        copy.maxTimeMillis = maxTimeMillis;
+        copy.verbose = verbose;
+        copy.tracePath = tracePath;
+        copy.profiling = profiling;
+        copy.loopDetection = loopDetection;
+        copy.pipeline = pipeline;
+        copy.fusion = fusion;
+        copy.cache = cache == null ? null : cache.copy();
+        copy.predictor = predictor;
+        copy.predictorEntries = predictorEntries;
+        copy.clock = clock;
+        copy.clockHz = clockHz;
+        copy.addressBits = addressBits;
+        copy.trapHandler = trapHandler;
+        copy.history = history;
+        copy.historySnapshotInterval = historySnapshotInterval;
+        copy.historyMaxEntries = historyMaxEntries;
+        copy.programCache = programCache;
+        copy.saida = saida;
+        return copy;
+    }
+
+    public boolean isDebugMode() { return debugMode; }
+    public Motor getMotor() { return motor; }
+    public long getMaxCycles() { return maxCycles; }
+    public long getMaxTimeMillis() { return maxTimeMillis; }
+    public boolean isVerbose() { return verbose; }
+    public String getTracePath() { return tracePath; }
+    public boolean isProfiling() { return profiling; }
+    public boolean isLoopDetection() { return loopDetection; }
+    public boolean isPipeline() { return pipeline; }
+    public boolean isFusion() { return fusion; }
+    public ConfiguracaoCache getCache() { return cache; }
+    public TipoPreditor getPredictor() { return predictor; }
+    public int getPredictorEntries() { return predictorEntries; }
+    public ModoRelogio getClock() { return clock; }
+    public long getClockHz() { return clockHz; }
+    public int getAddressBits() { return addressBits; }
+    public int getTrapHandler() { return trapHandler; }
+    public boolean isHistory() { return history; }
+    public long getHistorySnapshotInterval() { return historySnapshotInterval; }
+    public long getHistoryMaxEntries() { return historyMaxEntries; }
+    public CacheProgramas getProgramCache() { return programCache; }
+    public DispositivoSaida getSaida() { return saida; }
+
+    public Configuracao debugMode(boolean debugMode) {
+        this.debugMode = debugMode;
+        return this;
+    }
+
+    public Configuracao motor(Motor motor) {
+        this.motor = motor;
+        return this;
+    }
+
+    public Configuracao maxCycles(long maxCycles) {
+        if (maxCycles <= 0) {
+            throw new IllegalArgumentException("Limite de ciclos deve ser positivo: " + maxCycles);
+        }
+        this.maxCycles = maxCycles;
+        return this;
+    }
+
+    public Configuracao maxTimeMillis(long maxTimeMillis) {
+        if (maxTimeMillis < 0) {
+            throw new IllegalArgumentException("Limite de tempo não pode ser negativo: " + maxTimeMillis);
+        }
+        this.maxTimeMillis = maxTimeMillis;
+        return this;
+    }
+
+    // grava o trace binário de execução neste arquivo (null desliga)
+    public Configuracao tracePath(String tracePath) {
+        this.tracePath = tracePath;
+        return this;
+    }
+
+    // contadores por opcode/PC/desvio/endereço/syscall, consultados via Processador.getPerfil()
+    public Configuracao profiling(boolean profiling) {
+        this.profiling = profiling;
+        return this;
+    }
+
+    // encerra a execução assim que um estado da máquina se repete em um desvio para trás
+    public Configuracao loopDetection(boolean loopDetection) {
+        this.loopDetection = loopDetection;
+        return this;
+    }
+
+    // estima ciclos, CPI, bolhas e forwarding num pipeline de 5 estágios (Processador.getPipeline())
+    public Configuracao pipeline(boolean pipeline) {
+        this.pipeline = pipeline;
+        return this;
+    }
+
+    // executa pares CMP + JUMP_COND e MOV + ADD/LOAD/STORE como superinstruções quando nada
+    // observa ciclo a ciclo
+    public Configuracao fusion(boolean fusion) {
+        this.fusion = fusion;
+        return this;
+    }
+
+    // modela L1I/L1D (e L2) na frente da memória; null desliga (Processador.getCache())
+    public Configuracao cache(ConfiguracaoCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    // previsão dos JUMP_COND com estatísticas por desvio; null desliga (Processador.getPreditor())
+    public Configuracao predictor(TipoPreditor predictor) {
+        this.predictor = predictor;
+        return this;
+    }
+
+    // tamanho da tabela do preditor, potência de 2
+    public Configuracao predictorEntries(int predictorEntries) {
+        if (predictorEntries <= 0 || Integer.bitCount(predictorEntries) != 1) {
+            throw new IllegalArgumentException("Entradas do preditor devem ser potência de 2: " + predictorEntries);
+        }
+        this.predictorEntries = predictorEntries;
+        return this;
+    }
+
+    public Configuracao clock(ModoRelogio clock) {
+        this.clock = clock;
+        return this;
+    }
+
+    // ciclos por segundo do relógio VIRTUAL
+    public Configuracao clockHz(long clockHz) {
+        if (clockHz <= 0) {
+            throw new IllegalArgumentException("Frequência do relógio deve ser positiva: " + clockHz);
+        }
+        this.clockHz = clockHz;
+        return this;
+    }
+
+    // tamanho do espaço de endereçamento (2^bits palavras) das memórias criadas pelo lote,
+    // servidor e lockstep; as páginas só são alocadas quando escritas. Acima de 16 bits o espaço
+    // extra só é alcançável pelo host: o guest endereça com registradores de 16 bits
+    public Configuracao addressBits(int addressBits) {
+        if (addressBits < Memoria.DEFAULT_ADDRESS_BITS || addressBits > Memoria.MAX_ADDRESS_BITS) {
+            throw new IllegalArgumentException("Bits de endereço devem estar entre " + Memoria.DEFAULT_ADDRESS_BITS
+                    + " e " + Memoria.MAX_ADDRESS_BITS + ": " + addressBits);
+        }
+        this.addressBits = addressBits;
+        return this;
+    }
+
+    // PC para onde a primeira falha do guest é desviada em vez de encerrar a execução; o guest
+    // pode rearmar (syscall 8) e consultar a falha (syscalls 9 a 11). -1 desliga
+    public Configuracao trapHandler(int trapHandler) {
+        if (trapHandler < -1) {
+            throw new IllegalArgumentException("Endereço do tratador inválido: " + trapHandler);
+        }
+        this.trapHandler = trapHandler;
+        return this;
+    }
+
+    // registro de desfazer para Processador.stepBack/runBackTo/goToCycle e consultas da última
+    // escrita (Processador.getHistorico()); usa o interpretador, como o debug
+    public Configuracao history(boolean history) {
+        this.history = history;
+        return this;
+    }
+
+    // ciclos entre os snapshots que limitam a reexecução de goToCycle
+    public Configuracao historySnapshotInterval(long historySnapshotInterval) {
+        if (historySnapshotInterval <= 0) {
+            throw new IllegalArgumentException("Intervalo entre snapshots deve ser positivo: "
+                    + historySnapshotInterval);
+        }
+        this.historySnapshotInterval = historySnapshotInterval;
+        return this;
+    }
+
+    // entradas (8 bytes, cerca de uma por ciclo) mantidas no registro; as mais antigas são descartadas
+    public Configuracao historyMaxEntries(long historyMaxEntries) {
+        if (historyMaxEntries < HistoricoExecucao.MIN_ENTRIES) {
+            throw new IllegalArgumentException("O histórico precisa de pelo menos " + HistoricoExecucao.MIN_ENTRIES
+                    + " entradas: " + historyMaxEntries);
+        }
+        this.historyMaxEntries = historyMaxEntries;
+        return this;
+    }
+
+    // lê a análise do programa (decodificação, blocos e fusão) deste cache em disco em vez de
+    // refazê-la a cada execução; o cache pode ser compartilhado entre execuções simultâneas
+    public Configuracao programCache(CacheProgramas programCache) {
+        this.programCache = programCache;
+        return this;
+    }
+
+    // destino das syscalls de impressão; o mesmo dispositivo não deve ser usado por duas execuções
+    // simultâneas
+    public Configuracao saida(DispositivoSaida saida) {
+        this.saida = saida;
+        return this;
+    }
+
+    // sem verbose o processador não imprime banner, erros nem estado final
+    public Configuracao verbose(boolean verbose) {
+        this.verbose = verbose;
+        return this;
+    }
+}
@@ -0,0 +1,125 @@
+// Geometria e latências da hierarquia de cache (L1 de instruções e de dados separadas, L2
+// unificada opcional). Tamanhos em palavras de 16 bits, todos potências de 2.
+public class ConfiguracaoCache {
+    public static final int DEFAULT_MEMORY_LATENCY = 50;
+
+    public static final class Nivel {
+        private int sizeWords;
+        private int lineWords = 8;
+        private int ways = 2;
+        private PoliticaSubstituicao replacement = PoliticaSubstituicao.LRU;
+        private boolean writeBack = true;
+        private int hitLatency;
+
+        public Nivel(int sizeWords, int hitLatency) {
+            size(sizeWords);
+            hitLatency(hitLatency);
+        }
+
+        public Nivel copy() {
+            Nivel copy = new Nivel(sizeWords, hitLatency);
+            copy.lineWords = lineWords;
+            copy.ways = ways;
+            copy.replacement = replacement;
+            copy.writeBack = writeBack;
+            return copy;
+        }
+
+        public int getSizeWords() { return sizeWords; }
+        public int getLineWords() { return lineWords; }
+        public int getWays() { return ways; }
+        public PoliticaSubstituicao getReplacement() { return replacement; }
+        public boolean isWriteBack() { return writeBack; }
+        public int getHitLatency() { return hitLatency; }
+
+        public Nivel size(int sizeWords) {
+            this.sizeWords = requirePowerOfTwo(sizeWords, "Tamanho da cache");
+            return this;
+        }
+
+        public Nivel lineWords(int lineWords) {
+            this.lineWords = requirePowerOfTwo(lineWords, "Tamanho da linha");
+            return this;
+        }
+
+        public Nivel ways(int ways) {
+            this.ways = requirePowerOfTwo(ways, "Associatividade");
+            return this;
+        }
+
+        public Nivel replacement(PoliticaSubstituicao replacement) {
+            this.replacement = replacement;
+            return this;
+        }
+
+        // write-back com write-allocate, ou write-through sem alocação na escrita
+        public Nivel writeBack(boolean writeBack) {
+            this.writeBack = writeBack;
+            return this;
+        }
+
+        // ciclos extras de um acerto neste nível (0 na L1: o acesso cabe no próprio ciclo)
+        public Nivel hitLatency(int hitLatency) {
+            if (hitLatency < 0) {
+                throw new IllegalArgumentException("Latência não pode ser negativa: " + hitLatency);
+            }
+            this.hitLatency = hitLatency;
+            return this;
+        }
+    }
+
+    private Nivel instructionL1 = new Nivel(1024, 0);
+    private Nivel dataL1 = new Nivel(1024, 0);
+    private Nivel unifiedL2 = null;
+    private int memoryLatency = DEFAULT_MEMORY_LATENCY;
+
+    public ConfiguracaoCache copy() {
+        ConfiguracaoCache copy = new ConfiguracaoCache();
+        copy.instructionL1 = instructionL1.copy();
+        copy.dataL1 = dataL1.copy();
+        copy.unifiedL2 = unifiedL2 == null ? null : unifiedL2.copy();
+        copy.memoryLatency = memoryLatency;
+        return copy;
+    }
+
+    public Nivel getInstructionL1() { return instructionL1; }
+    public Nivel getDataL1() { return dataL1; }
+    public Nivel getUnifiedL2() { return unifiedL2; }
+    public int getMemoryLatency() { return memoryLatency; }
+
+    public ConfiguracaoCache instructionL1(Nivel instructionL1) {
+        this.instructionL1 = instructionL1;
+        return this;
+    }
+
+    public ConfiguracaoCache dataL1(Nivel dataL1) {
+        this.dataL1 = dataL1;
+        return this;
+    }
+
+    // null desliga a L2
+    public ConfiguracaoCache unifiedL2(Nivel unifiedL2) {
+        this.unifiedL2 = unifiedL2;
+        return this;
+    }
+
+    // L2 padrão: 16K palavras, 8 vias, 10 ciclos por acerto
+    public ConfiguracaoCache defaultL2() {
+        return unifiedL2(new Nivel(16 * 1024, 10).ways(8));
+    }
+
+    public ConfiguracaoCache memoryLatency(int memoryLatency) {
+        if (memoryLatency < 0) {
+            throw new IllegalArgumentException("Latência não pode ser negativa: " + memoryLatency);
+        }
+        this.memoryLatency = memoryLatency;
+        return this;
+    }
+
+    private static int requirePowerOfTwo(int value, String what) {
+        if (value <= 0 || Integer.bitCount(value) != 1) {
+            throw new IllegalArgumentException(what + " deve ser potência de 2: " + value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Converte um trace gravado pelo RastreadorExecucao para o mesmo texto do modo debug (as linhas
+// de System.out e a de erro de System.err; a saída do programa guest não fica no trace).
+// Uso: java DecodificadorTrace <arquivo.trace>
+public class DecodificadorTrace {
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Uso: java DecodificadorTrace <arquivo.trace>");
+            return;
+        }
+        try {
+            decode(args[0], System.out);
+        } catch (IOException e) {
+            System.err.println("Erro: " + e.getMessage());
+        }
+    }
+
+    public static void decode(String tracePath, PrintStream out) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(tracePath), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if (buffer.remaining() < RastreadorExecucao.HEADER_SIZE || buffer.getInt() != RastreadorExecucao.MAGIC) {
+            throw new IOException("Arquivo não é um trace do simulador: " + tracePath);
+        }
+        int version = buffer.getShort();
+        int entrySize = buffer.getShort();
+        if (version != RastreadorExecucao.VERSION || entrySize != RastreadorExecucao.ENTRY_SIZE) {
+            throw new IOException("Versão de trace não suportada: " + version);
+        }
+
+        while (buffer.remaining() >= entrySize) {
+            renderEntry(buffer, out);
+        }
+    }
+
+    private static void renderEntry(ByteBuffer buffer, PrintStream out) {
+        long cycle = buffer.getLong();
+        int pc = buffer.getShort() & 0xFFFF;
+        short raw = buffer.getShort();
+        int flags = buffer.get() & 0xFF;
+        int registerIndex = buffer.get();
+        short registerValue = buffer.getShort();
+        int memoryAddress = buffer.getShort();
+        buffer.getShort(); // valor de memória: o texto do debug não o mostra
+        short operand1 = buffer.getShort();
+        short operand2 = buffer.getShort();
+        int nextPc = buffer.getShort() & 0xFFFF;
+        int errorCode = buffer.get();
+        flags |= (buffer.get() & 0xFF) << 8;
+        int errorArg = buffer.getInt();
+
+        out.printf("Ciclo %d - PC: %d\n", cycle, pc);
+        if ((flags & RastreadorExecucao.FLAG_FETCH_FAULT) != 0) {
+            renderFault(cycle, Processador.ERR_FETCH, pc, flags, nextPc, out);
+        } else {
+            Instrucao instr = new Instrucao(raw);
+            out.println("  Decodificada: " + instr);
+
+            boolean divisionByZero = errorCode != 0 && instr.isFormatR() && instr.getOpcode() == 3;
+            if (!divisionByZero) {
+                renderOperation(instr, registerIndex, registerValue, memoryAddress, operand1, operand2, out);
+            }
+            if ((flags & RastreadorExecucao.FLAG_CONDITIONAL) != 0) {
+                if ((flags & RastreadorExecucao.FLAG_TAKEN) != 0) {
+                    out.printf("  Condição verdadeira, saltando para %d\n", nextPc);
+                } else {
+                    out.printf("  Condição falsa, continuando para %d\n", nextPc);
+                }
+            }
+            if (errorCode != 0) {
+                renderFault(cycle, errorCode, errorArg, flags, nextPc, out);
+            }
+        }
+        if (cycle % 1000 == 0) {
+            out.println("Executando... Ciclo: " + cycle);
+        }
+    }
+
+    // desvio para o tratador (linha do debug) ou erro que encerrou a execução (linha de System.err)
+    private static void renderFault(long cycle, int errorCode, int errorArg, int flags, int nextPc, PrintStream out) {
+        if ((flags & RastreadorExecucao.FLAG_TRAPPED) != 0) {
+            out.printf("  Falha %d (%s), desviando para o tratador em %d\n", errorCode,
+                    Processador.describeError(errorCode, errorArg), nextPc);
+        } else {
+            boolean memoryWrite = (flags & RastreadorExecucao.FLAG_MEMORY_WRITE) != 0;
+            out.println("Erro no ciclo " + cycle + ": " + Processador.errorMessage(errorCode, errorArg, memoryWrite));
+        }
+    }
+
+    private static void renderOperation(Instrucao instr, int rd, short value, int address,
+                                        short val1, short val2, PrintStream out) {
+        int rs1 = instr.getRs1();
+        int rs2 = instr.getRs2();
+        if (instr.isFormatR()) {
+            switch (instr.getOpcode()) {
+                case 0:
+                    out.printf("  ADD: R%d = R%d(%d) + R%d(%d) = %d\n", rd, rs1, val1, rs2, val2, value);
+                    break;
+                case 1:
+                    out.printf("  SUB: R%d = R%d(%d) - R%d(%d) = %d\n", rd, rs1, val1, rs2, val2, value);
+                    break;
+                case 2:
+                    out.printf("  MUL: R%d = R%d(%d) * R%d(%d) = %d\n", rd, rs1, val1, rs2, val2, value);
+                    break;
+                case 3:
+                    out.printf("  DIV: R%d = R%d(%d) / R%d(%d) = %d\n", rd, rs1, val1, rs2, val2, value);
+                    break;
+                case 4:
+                    out.printf("  CMP_EQ: R%d = (R%d(%d) == R%d(%d)) = %d\n", rd, rs1, val1, rs2, val2, value);
+                    break;
+                case 5:
+                    out.printf("  CMP_NEQ: R%d = (R%d(%d) != R%d(%d)) = %d\n", rd, rs1, val1, rs2, val2, value);
+                    break;
+                case 15:
+                    out.printf("  LOAD: R%d = MEM[R%d(%d)]\n", instr.getRd(), rs1, address);
+                    break;
+                case 16:
+                    out.printf("  STORE: MEM[R%d(%d)] = R%d(%d)\n", rs1, address, rs2, val2);
+                    break;
+                case 63:
+                    out.printf("  SYSCALL: serviço %d\n", val1);
+                    break;
+                default:
+                    break;
+            }
+        } else {
+            int imediato = instr.getImmediateUnsigned();
+            switch (instr.getOpcode()) {
+                case 0:
+                    out.printf("  JUMP: PC = %d\n", imediato);
+                    break;
+                case 1:
+                    out.printf("  JUMP_COND: se R%d == 1 então PC = %d\n", instr.getRd(), imediato);
+                    break;
+                case 3:
+                    out.printf("  MOV: R%d = %d\n", instr.getRd(), imediato);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.Arrays;
+
+// Detecta laços infinitos: nos alvos de desvios para trás, guarda a impressão digital do estado
+// da máquina (PC, os 8 registradores e o hash do conteúdo da memória) e acusa o laço quando um
+// estado idêntico se repete. PC e registradores são comparados exatamente; a memória, pelo hash.
+public class DetectorLaco {
+    private static final int CAPACITY = 1 << 15;
+    private static final int MAX_ENTRIES = CAPACITY / 2; // ao encher, recomeça do zero
+
+    private final boolean[] used = new boolean[CAPACITY];
+    private final int[] pcs = new int[CAPACITY];
+    private final long[] registersLow = new long[CAPACITY];
+    private final long[] registersHigh = new long[CAPACITY];
+    private final long[] memoryHashes = new long[CAPACITY];
+    private int entries = 0;
+
+    private int loopStartPc = -1;
+    private int loopEndPc = -1;
+
+    // retorna true quando o estado no alvo já foi visto antes
+    boolean visit(int targetPc, int branchPc, Registrador registrador, long memoryHash) {
+        long low = pack(registrador, 0);
+        long high = pack(registrador, 4);
+
+        long key = targetPc * 0x9E3779B97F4A7C15L ^ low * 0xC2B2AE3D27D4EB4FL ^ high * 0x165667B19E3779F9L
+                ^ memoryHash;
+        int slot = (int) (key ^ (key >>> 32)) & (CAPACITY - 1);
+        while (used[slot]) {
+            if (pcs[slot] == targetPc && registersLow[slot] == low && registersHigh[slot] == high
+                    && memoryHashes[slot] == memoryHash) {
+                loopStartPc = targetPc;
+                loopEndPc = branchPc;
+                return true;
+            }
+            slot = (slot + 1) & (CAPACITY - 1);
+        }
+
+        if (entries == MAX_ENTRIES) {
+            reset();
+            return visit(targetPc, branchPc, registrador, memoryHash);
+        }
+        used[slot] = true;
+        pcs[slot] = targetPc;
+        registersLow[slot] = low;
+        registersHigh[slot] = high;
+        memoryHashes[slot] = memoryHash;
+        entries++;
+        return false;
+    }
+
+    private static long pack(Registrador registrador, int first) {
+        long packed = 0;
+        for (int i = first; i < first + 4; i++) {
+            packed = (packed << 16) | (registrador.get(i) & 0xFFFF);
+        }
+        return packed;
+    }
+
+    // esquece os estados vistos, p.ex. depois de um syscall que lê o relógio
+    void reset() {
+        Arrays.fill(used, false);
+        entries = 0;
+    }
+
+    public int getLoopStartPc() { return loopStartPc; }
+    public int getLoopEndPc() { return loopEndPc; }
+}
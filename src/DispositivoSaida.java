@@ -0,0 +1,14 @@
+// Destino da saída do programa guest (syscalls 1, 2 e 3) e das mensagens do simulador
+// durante a execução.
+public interface DispositivoSaida {
+    void write(char c);
+
+    void print(String text);
+
+    void printInt(int value);
+
+    void newline();
+
+    // grava o que estiver pendente; chamado no fim da execução
+    void flush();
+}
@@ -0,0 +1,585 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+// Executa o mesmo programa para várias entradas (lanes) em lockstep. Os registradores ficam em
+// struct-of-arrays (um short[] por registrador, indexado pela lane) e cada instrução é despachada
+// uma vez por grupo de lanes com o mesmo PC. Desvios divergentes dividem o grupo; grupos que
+// chegam ao mesmo PC voltam a ser um só (sempre avança o grupo de menor PC). O que o lockstep
+// não reproduz (falhas, sleep/time, syscalls desconhecidas, código fora da área pré-decodificada)
+// faz a lane sair para um Processador escalar no mesmo PC, ciclo e estado.
+public class ExecucaoLockstep {
+    private static final int LANE_PAGE_SHIFT = 8;
+    private static final int LANE_PAGE_WORDS = 1 << LANE_PAGE_SHIFT;
+    private static final int LANE_PAGE_MASK = LANE_PAGE_WORDS - 1;
+    private static final int DEADLINE_CHECK_MASK = 0x3FF;
+
+    private final short[] program;
+    private final Configuracao config;
+    private final ProgramaDecodificado programa;
+    private final int lanes;
+
+    private final short[][] registers; // registers[r][lane]
+    private final long[] cycles;
+    private final int[] pcs;
+    private final StatusExecucao[] status;
+    // memória de dados: imagem inicial compartilhada e páginas próprias de cada lane, copiadas
+    // na primeira escrita
+    private final short[] baseData;
+    private final int programPages;
+    private final short[][][] lanePages;
+    private final SaidaMemoria[] outputs;
+
+    private final List<Integer> scalarLanes = new ArrayList<>();
+    private long lockstepDispatches = 0;
+    private long deadline = 0; // fim do orçamento maxTimeMillis (System.nanoTime), 0 = sem limite
+
+    private static final class Grupo {
+        int pc;
+        int[] lanes;
+        int count;
+        long maxCycle;
+
+        Grupo(int pc, int[] lanes, int count, long maxCycle) {
+            this.pc = pc;
+            this.lanes = lanes;
+            this.count = count;
+            this.maxCycle = maxCycle;
+        }
+    }
+
+    public ExecucaoLockstep(short[] program, int lanes, Configuracao config) throws ProcessorException {
+        if (lanes <= 0) {
+            throw new IllegalArgumentException("Número de lanes deve ser positivo: " + lanes);
+        }
+        this.program = program.clone();
+        this.config = config.copy().verbose(false).debugMode(false).saida(null);
+        Memoria memoria = new Memoria(this.program, config.getAddressBits());
+        this.programa = new ProgramaDecodificado(memoria);
+        this.lanes = lanes;
+
+        this.registers = new short[new Registrador().size()][lanes];
+        this.cycles = new long[lanes];
+        this.pcs = new int[lanes];
+        this.status = new StatusExecucao[lanes];
+        this.outputs = new SaidaMemoria[lanes];
+        this.lanePages = new short[lanes][][];
+
+        // LOAD/STORE só alcançam os endereços positivos de um registrador de 16 bits; o que
+        // passar disso (p.ex. uma string longa) fica com o Processador
+        this.programPages = memoria.getResidentPages();
+        this.baseData = new short[Math.min(memoria.getDataWords(), Short.MAX_VALUE + 1)];
+        for (int address = 0; address < baseData.length; address++) {
+            baseData[address] = memoria.readData(address);
+        }
+    }
+
+    public int getLanes() { return lanes; }
+
+    public void setRegister(int lane, int index, short value) {
+        registers[index][lane] = value;
+    }
+
+    public void setRegisters(int lane, short[] values) {
+        for (int r = 0; r < registers.length; r++) {
+            registers[r][lane] = values[r];
+        }
+    }
+
+    // endereço de dados como o do STORE (relativo a DATA_START)
+    public void writeData(int lane, int address, short value) {
+        if (address < 0 || address >= baseData.length) {
+            throw new IllegalArgumentException("Endereço de dados inválido: " + address);
+        }
+        store(lane, address, value);
+    }
+
+    // lanes que terminaram no Processador escalar
+    public List<Integer> getScalarLanes() { return new ArrayList<>(scalarLanes); }
+    // instruções despachadas em lockstep (uma por grupo, não por lane)
+    public long getLockstepDispatches() { return lockstepDispatches; }
+
+    public List<ResultadoTarefa> run() {
+        long start = System.nanoTime();
+        // as lanes que continuam no Processador escalar seguem no mesmo orçamento de tempo
+        deadline = config.getMaxTimeMillis() > 0 ? start + config.getMaxTimeMillis() * 1_000_000L : 0;
+        int[] all = new int[lanes];
+        for (int lane = 0; lane < lanes; lane++) {
+            all[lane] = lane;
+        }
+
+        // observadores ciclo a ciclo e a detecção de laço só existem no Processador
+        boolean lockstep = !config.isProfiling() && config.getTracePath() == null && !config.isPipeline()
+                && config.getCache() == null && config.getPredictor() == null && !config.isLoopDetection();
+        if (lockstep) {
+            runGroups(new Grupo(0, all, lanes, 0));
+        } else {
+            for (int lane = 0; lane < lanes; lane++) {
+                scalarLanes.add(lane);
+            }
+        }
+
+        List<ResultadoTarefa> results = new ArrayList<>(lanes);
+        for (int lane = 0; lane < lanes; lane++) {
+            results.add(null);
+        }
+        for (int lane = 0; lane < lanes; lane++) {
+            if (status[lane] != null) {
+                results.set(lane, result(lane, status[lane], pcs[lane], null, System.nanoTime() - start,
+                        residentPages(lane)));
+            }
+        }
+        for (int lane : scalarLanes) {
+            results.set(lane, runScalar(lane, start));
+        }
+        return results;
+    }
+
+    private void runGroups(Grupo first) {
+        List<Grupo> groups = new ArrayList<>();
+        groups.add(first);
+        int steps = 0;
+
+        while (!groups.isEmpty()) {
+            Grupo grupo = next(groups);
+            if (deadline != 0 && (++steps & DEADLINE_CHECK_MASK) == 0 && System.nanoTime() - deadline > 0) {
+                for (Grupo g : groups) {
+                    retire(g, StatusExecucao.TEMPO_ESGOTADO);
+                }
+                return;
+            }
+            if (grupo.maxCycle >= config.getMaxCycles()) {
+                retireAtLimit(grupo);
+            }
+            if (grupo.count == 0 || !step(grupo, groups)) {
+                groups.remove(grupo);
+            }
+        }
+    }
+
+    // grupo de menor PC, já unido aos outros que estão no mesmo PC
+    private static Grupo next(List<Grupo> groups) {
+        if (groups.size() == 1) {
+            return groups.get(0);
+        }
+        Grupo chosen = groups.get(0);
+        for (Grupo g : groups) {
+            if (g.pc < chosen.pc) {
+                chosen = g;
+            }
+        }
+        for (int i = groups.size() - 1; i >= 0; i--) {
+            Grupo g = groups.get(i);
+            if (g != chosen && g.pc == chosen.pc) {
+                int[] merged = new int[chosen.count + g.count];
+                System.arraycopy(chosen.lanes, 0, merged, 0, chosen.count);
+                System.arraycopy(g.lanes, 0, merged, chosen.count, g.count);
+                Arrays.sort(merged); // lanes em ordem ajudam o acesso aos arrays
+                chosen.lanes = merged;
+                chosen.count = merged.length;
+                chosen.maxCycle = Math.max(chosen.maxCycle, g.maxCycle);
+                groups.remove(i);
+            }
+        }
+        return chosen;
+    }
+
+    // executa a instrução do PC do grupo; false quando o grupo acabou
+    private boolean step(Grupo g, List<Grupo> groups) {
+        int pc = g.pc;
+        if (!programa.contains(pc)) {
+            splitAll(g);
+            return false;
+        }
+        lockstepDispatches++;
+        int rd = programa.getRd(pc);
+        int rs1 = programa.getRs1(pc);
+        int rs2 = programa.getRs2(pc);
+        int opcode = programa.getOpcode(pc);
+
+        if (!programa.isFormatR(pc)) {
+            switch (opcode) {
+                case 0:
+                    advance(g, programa.getImmediateUnsigned(pc));
+                    return true;
+                case 1:
+                    branch(g, rd, programa.getImmediateUnsigned(pc), groups);
+                    return g.count > 0;
+                case 3:
+                    mov(g, registers[rd], (short) programa.getImmediateUnsigned(pc));
+                    advance(g, pc + 1);
+                    return true;
+                default:
+                    splitAll(g); // o Processador reproduz o erro de opcode
+                    return false;
+            }
+        }
+
+        short[] d = registers[rd];
+        short[] a = registers[rs1];
+        short[] b = registers[rs2];
+        switch (opcode) {
+            case 0:
+                if (dense(g)) {
+                    for (int l = 0; l < lanes; l++) {
+                        d[l] = (short) (a[l] + b[l]);
+                    }
+                } else {
+                    for (int i = 0; i < g.count; i++) {
+                        int l = g.lanes[i];
+                        d[l] = (short) (a[l] + b[l]);
+                    }
+                }
+                break;
+            case 1:
+                if (dense(g)) {
+                    for (int l = 0; l < lanes; l++) {
+                        d[l] = (short) (a[l] - b[l]);
+                    }
+                } else {
+                    for (int i = 0; i < g.count; i++) {
+                        int l = g.lanes[i];
+                        d[l] = (short) (a[l] - b[l]);
+                    }
+                }
+                break;
+            case 2:
+                if (dense(g)) {
+                    for (int l = 0; l < lanes; l++) {
+                        d[l] = (short) (a[l] * b[l]);
+                    }
+                } else {
+                    for (int i = 0; i < g.count; i++) {
+                        int l = g.lanes[i];
+                        d[l] = (short) (a[l] * b[l]);
+                    }
+                }
+                break;
+            case 3:
+                splitWhere(g, l -> b[l] == 0); // divisão por zero fica com o Processador
+                for (int i = 0; i < g.count; i++) {
+                    int l = g.lanes[i];
+                    d[l] = (short) (a[l] / b[l]);
+                }
+                break;
+            case 4:
+                if (dense(g)) {
+                    for (int l = 0; l < lanes; l++) {
+                        d[l] = (short) (notEqual(a[l], b[l]) ^ 1);
+                    }
+                } else {
+                    for (int i = 0; i < g.count; i++) {
+                        int l = g.lanes[i];
+                        d[l] = (short) (a[l] == b[l] ? 1 : 0);
+                    }
+                }
+                break;
+            case 5:
+                if (dense(g)) {
+                    for (int l = 0; l < lanes; l++) {
+                        d[l] = (short) notEqual(a[l], b[l]);
+                    }
+                } else {
+                    for (int i = 0; i < g.count; i++) {
+                        int l = g.lanes[i];
+                        d[l] = (short) (a[l] != b[l] ? 1 : 0);
+                    }
+                }
+                break;
+            case 15:
+                splitWhere(g, l -> !isValid(a[l]));
+                for (int i = 0; i < g.count; i++) {
+                    int l = g.lanes[i];
+                    d[l] = load(l, a[l]);
+                }
+                break;
+            case 16:
+                splitWhere(g, l -> !isValid(a[l]));
+                for (int i = 0; i < g.count; i++) {
+                    int l = g.lanes[i];
+                    store(l, a[l], b[l]);
+                }
+                break;
+            case 63:
+                return syscall(g);
+            default:
+                splitAll(g);
+                return false;
+        }
+        advance(g, pc + 1);
+        return g.count > 0;
+    }
+
+    private boolean dense(Grupo g) {
+        return g.count == lanes;
+    }
+
+    // 1 se x != y, sem desvio por lane (o laço denso continua vetorizável): x - y e y - x só
+    // são ambos não negativos quando iguais
+    private static int notEqual(short x, short y) {
+        return ((x - y) | (y - x)) >>> 31;
+    }
+
+    private void mov(Grupo g, short[] d, short value) {
+        if (dense(g)) {
+            Arrays.fill(d, value);
+        } else {
+            for (int i = 0; i < g.count; i++) {
+                d[g.lanes[i]] = value;
+            }
+        }
+    }
+
+    private void advance(Grupo g, int nextPc) {
+        if (dense(g)) {
+            for (int l = 0; l < lanes; l++) {
+                cycles[l]++;
+            }
+        } else {
+            for (int i = 0; i < g.count; i++) {
+                cycles[g.lanes[i]]++;
+            }
+        }
+        g.maxCycle++;
+        g.pc = nextPc;
+    }
+
+    // lanes com a condição verdadeira vão para um grupo novo no alvo; sem divergência o grupo
+    // só segue adiante, sem alocar
+    private void branch(Grupo g, int conditionRegister, int target, List<Grupo> groups) {
+        short[] condition = registers[conditionRegister];
+        int takenCount = 0;
+        for (int i = 0; i < g.count; i++) {
+            if (condition[g.lanes[i]] == 1) {
+                takenCount++;
+            }
+        }
+        if (takenCount == 0 || takenCount == g.count) {
+            advance(g, takenCount == 0 ? g.pc + 1 : target);
+            return;
+        }
+        int[] taken = new int[takenCount];
+        int kept = 0;
+        takenCount = 0;
+        for (int i = 0; i < g.count; i++) {
+            int l = g.lanes[i];
+            if (condition[l] == 1) {
+                taken[takenCount++] = l;
+            } else {
+                g.lanes[kept++] = l;
+            }
+        }
+        g.count = kept;
+        Grupo other = new Grupo(g.pc, taken, takenCount, g.maxCycle);
+        advance(g, g.pc + 1);
+        advance(other, target);
+        groups.add(other);
+    }
+
+    private boolean syscall(Grupo g) {
+        short[] service = registers[0];
+        short[] argument = registers[1];
+        splitWhere(g, l -> service[l] < 0 || service[l] > 3
+                || (service[l] == 1 && !isValidString(l, argument[l])));
+        for (int i = 0; i < g.count; i++) {
+            int l = g.lanes[i];
+            switch (service[l]) {
+                case 1:
+                    for (int address = argument[l]; load(l, address) != 0; address++) {
+                        output(l).write((char) load(l, address));
+                    }
+                    break;
+                case 2:
+                    output(l).newline();
+                    break;
+                case 3:
+                    output(l).printInt(argument[l]);
+                    output(l).newline();
+                    break;
+                default:
+                    break;
+            }
+        }
+        int pc = g.pc;
+        advance(g, pc + 1);
+        // quem chamou o serviço 0 encerra aqui
+        int kept = 0;
+        for (int i = 0; i < g.count; i++) {
+            int l = g.lanes[i];
+            if (service[l] == 0) {
+                status[l] = StatusExecucao.ENCERRADO;
+                pcs[l] = pc + 1;
+            } else {
+                g.lanes[kept++] = l;
+            }
+        }
+        g.count = kept;
+        return kept > 0;
+    }
+
+    private interface CondicaoLane {
+        boolean test(int lane);
+    }
+
+    // tira do grupo as lanes que o lockstep não sabe executar nesta instrução
+    private void splitWhere(Grupo g, CondicaoLane condition) {
+        int kept = 0;
+        for (int i = 0; i < g.count; i++) {
+            int l = g.lanes[i];
+            if (condition.test(l)) {
+                pcs[l] = g.pc;
+                scalarLanes.add(l);
+            } else {
+                g.lanes[kept++] = l;
+            }
+        }
+        g.count = kept;
+    }
+
+    private void splitAll(Grupo g) {
+        splitWhere(g, l -> true);
+    }
+
+    private void retireAtLimit(Grupo g) {
+        int kept = 0;
+        long maxCycle = 0;
+        for (int i = 0; i < g.count; i++) {
+            int l = g.lanes[i];
+            if (cycles[l] >= config.getMaxCycles()) {
+                status[l] = StatusExecucao.LIMITE_CICLOS;
+                pcs[l] = g.pc;
+            } else {
+                g.lanes[kept++] = l;
+                maxCycle = Math.max(maxCycle, cycles[l]);
+            }
+        }
+        g.count = kept;
+        g.maxCycle = maxCycle;
+    }
+
+    private void retire(Grupo g, StatusExecucao reason) {
+        for (int i = 0; i < g.count; i++) {
+            status[g.lanes[i]] = reason;
+            pcs[g.lanes[i]] = g.pc;
+        }
+        g.count = 0;
+    }
+
+    private boolean isValid(int address) {
+        return address >= 0 && address < baseData.length;
+    }
+
+    private boolean isValidString(int lane, int address) {
+        while (isValid(address)) {
+            if (load(lane, address) == 0) {
+                return true;
+            }
+            address++;
+        }
+        return false;
+    }
+
+    private short load(int lane, int address) {
+        short[][] pages = lanePages[lane];
+        if (pages != null) {
+            short[] page = pages[address >>> LANE_PAGE_SHIFT];
+            if (page != null) {
+                return page[address & LANE_PAGE_MASK];
+            }
+        }
+        return baseData[address];
+    }
+
+    private void store(int lane, int address, short value) {
+        short[][] pages = lanePages[lane];
+        if (pages == null) {
+            pages = new short[(baseData.length + LANE_PAGE_WORDS - 1) >>> LANE_PAGE_SHIFT][];
+            lanePages[lane] = pages;
+        }
+        int index = address >>> LANE_PAGE_SHIFT;
+        if (pages[index] == null) {
+            int start = index << LANE_PAGE_SHIFT;
+            short[] page = new short[LANE_PAGE_WORDS];
+            System.arraycopy(baseData, start, page, 0, Math.min(LANE_PAGE_WORDS, baseData.length - start));
+            pages[index] = page;
+        }
+        pages[index][address & LANE_PAGE_MASK] = value;
+    }
+
+    private SaidaMemoria output(int lane) {
+        if (outputs[lane] == null) {
+            outputs[lane] = new SaidaMemoria();
+        }
+        return outputs[lane];
+    }
+
+    // continua a lane num Processador a partir do estado dela
+    private ResultadoTarefa runScalar(int lane, long start) {
+        try {
+            Memoria memoria = new Memoria(program, config.getAddressBits());
+            short[][] pages = lanePages[lane];
+            if (pages != null) {
+                for (int index = 0; index < pages.length; index++) {
+                    if (pages[index] == null) {
+                        continue;
+                    }
+                    int base = index << LANE_PAGE_SHIFT;
+                    for (int offset = 0; offset < LANE_PAGE_WORDS && base + offset < baseData.length; offset++) {
+                        memoria.writeData(base + offset, pages[index][offset]);
+                    }
+                }
+            }
+            Registrador registrador = new Registrador();
+            short[] values = new short[registers.length];
+            for (int r = 0; r < registers.length; r++) {
+                values[r] = registers[r][lane];
+            }
+            registrador.load(values);
+
+            Processador processador = new Processador(memoria, registrador, config.copy().saida(output(lane)));
+            processador.startAt(pcs[lane], cycles[lane], deadline);
+            StatusExecucao result;
+            while ((result = processador.runUntilHalt()) == StatusExecucao.AGUARDANDO) {
+                LockSupport.parkNanos(processador.getWakeUpDelayNanos());
+            }
+            cycles[lane] = processador.getCycleCount();
+            for (int r = 0; r < registers.length; r++) {
+                registers[r][lane] = registrador.get(r);
+            }
+            return result(lane, result, processador.getPc(), processador.getErrorMessage(), System.nanoTime() - start,
+                    memoria.getResidentPages());
+        } catch (ProcessorException e) {
+            return result(lane, StatusExecucao.ERRO, pcs[lane], e.getMessage(), System.nanoTime() - start,
+                    residentPages(lane));
+        }
+    }
+
+    // o que a Memoria da lane teria alocado: as páginas do programa e as de dados escritas
+    private int residentPages(int lane) {
+        short[][] pages = lanePages[lane];
+        if (pages == null) {
+            return programPages;
+        }
+        int resident = programPages;
+        int lastPage = -1;
+        for (int index = 0; index < pages.length; index++) {
+            int page = (Memoria.DATA_START + (index << LANE_PAGE_SHIFT)) >>> Memoria.PAGE_SHIFT;
+            if (pages[index] != null && page >= programPages && page != lastPage) {
+                resident++;
+                lastPage = page;
+            }
+        }
+        return resident;
+    }
+
+    private ResultadoTarefa result(int lane, StatusExecucao laneStatus, int pc, String errorMessage, long elapsed,
+                                   int residentPages) {
+        short[] values = new short[registers.length];
+        for (int r = 0; r < registers.length; r++) {
+            values[r] = registers[r][lane];
+        }
+        return new ResultadoTarefa("lane " + lane, laneStatus, cycles[lane], pc, values, elapsed, errorMessage,
+                outputs[lane] == null ? "" : outputs[lane].getText(), residentPages, null, null, null);
+    }
+}
@@ -0,0 +1,312 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+public class ExecutorLote {
+    private final Configuracao config;
+    private final int threads;
+    private final boolean virtualThreads;
+
+    public ExecutorLote(Configuracao config, int threads, boolean virtualThreads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Número de threads deve ser positivo: " + threads);
+        }
+        checkSupported(config);
+        // cada tarefa roda isolada e em silêncio; o resultado vai para o relatório
+        this.config = config.copy().verbose(false).debugMode(false);
+        this.threads = threads;
+        this.virtualThreads = virtualThreads;
+    }
+
+    // os programas do lote rodam em paralelo e gravariam todos no mesmo arquivo de trace; a opção
+    // é recusada antes de qualquer execução em vez de ser desligada em silêncio
+    public static void checkSupported(Configuracao config) {
+        if (config.getTracePath() != null) {
+            throw new IllegalArgumentException("Trace (--trace) não é suportado com --lote");
+        }
+    }
+
+    // aceita um diretório (todos os .bin dele) ou um manifesto com um caminho por linha
+    public static List<String> listPrograms(String path) throws IOException {
+        Path source = Paths.get(path);
+        List<String> programs = new ArrayList<>();
+
+        if (Files.isDirectory(source)) {
+            try (Stream<Path> files = Files.list(source)) {
+                files.filter(f -> f.getFileName().toString().toLowerCase().endsWith(".bin"))
+                        .sorted()
+                        .forEach(f -> programs.add(f.toString()));
+            }
+        } else {
+            Path base = source.toAbsolutePath().getParent();
+            for (String line : Files.readAllLines(source)) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                programs.add(base.resolve(line).toString());
+            }
+        }
+        return programs;
+    }
+
+    public List<ResultadoTarefa> runAll(List<String> programs) throws InterruptedException {
+        ExecutorService pool = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newWorkStealingPool(threads);
+        try {
+            if (config.getClock() == ModoRelogio.AGENDADO) {
+                return runScheduled(programs, pool);
+            }
+
+            List<Callable<ResultadoTarefa>> jobs = new ArrayList<>(programs.size());
+            for (String program : programs) {
+                jobs.add(() -> runJob(program, config));
+            }
+            List<ResultadoTarefa> results = new ArrayList<>(programs.size());
+            List<Future<ResultadoTarefa>> futures = pool.invokeAll(jobs);
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(failed(programs.get(i), 0, e.getCause()));
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // relógio AGENDADO: um programa em sleep devolve a thread ao pool e é reenfileirado pelo
+    // agendador quando o tempo acaba, então um sleep longo não segura um worker
+    private List<ResultadoTarefa> runScheduled(List<String> programs, ExecutorService pool)
+            throws InterruptedException {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "lote-agendador");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<CompletableFuture<ResultadoTarefa>> futures = new ArrayList<>(programs.size());
+            for (String program : programs) {
+                CompletableFuture<ResultadoTarefa> future = new CompletableFuture<>();
+                futures.add(future);
+                pool.execute(() -> {
+                    Execucao execucao = Execucao.open(program, config, future);
+                    if (execucao != null) {
+                        execucao.resume(pool, scheduler);
+                    }
+                });
+            }
+
+            List<ResultadoTarefa> results = new ArrayList<>(programs.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(failed(programs.get(i), 0, e.getCause()));
+                }
+            }
+            return results;
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // execução de um programa que pode ser suspensa em sleep e retomada em outra thread
+    private static final class Execucao {
+        private final String name;
+        private final long start;
+        private final Processador processador;
+        private final SaidaMemoria captured;
+        private final CompletableFuture<ResultadoTarefa> future;
+
+        private Execucao(String name, Memoria memoria, Configuracao config, long start,
+                         CompletableFuture<ResultadoTarefa> future) throws ProcessorException {
+            this.name = name;
+            this.start = start;
+            // sem dispositivo configurado, a saída de cada programa é capturada separadamente
+            if (config.getSaida() == null) {
+                this.captured = new SaidaMemoria();
+                config = config.copy().saida(captured);
+            } else {
+                this.captured = null;
+            }
+            this.processador = new Processador(memoria, new Registrador(), config);
+            this.future = future;
+        }
+
+        // carrega o binário; uma falha já completa o future e devolve null
+        static Execucao open(String binaryPath, Configuracao config, CompletableFuture<ResultadoTarefa> future) {
+            long start = System.nanoTime();
+            try {
+                return new Execucao(binaryPath, mapBinary(binaryPath, config), config, start, future);
+            } catch (Exception e) {
+                future.complete(failed(binaryPath, System.nanoTime() - start, e));
+                return null;
+            }
+        }
+
+        void resume(ExecutorService pool, ScheduledExecutorService scheduler) {
+            try {
+                StatusExecucao status = processador.runUntilHalt();
+                if (status == StatusExecucao.AGUARDANDO) {
+                    scheduler.schedule(() -> pool.execute(() -> resume(pool, scheduler)),
+                            processador.getWakeUpDelayNanos(), TimeUnit.NANOSECONDS);
+                    return;
+                }
+                future.complete(result(status));
+            } catch (Exception e) {
+                future.complete(failed(name, System.nanoTime() - start, e));
+            }
+        }
+
+        // execução completa na thread atual; um sleep AGENDADO só estaciona esta thread
+        ResultadoTarefa runToEnd() {
+            StatusExecucao status;
+            while ((status = processador.runUntilHalt()) == StatusExecucao.AGUARDANDO) {
+                LockSupport.parkNanos(processador.getWakeUpDelayNanos());
+            }
+            return result(status);
+        }
+
+        private ResultadoTarefa result(StatusExecucao status) {
+            return new ResultadoTarefa(name, status, processador.getCycleCount(), processador.getPc(),
+                    processador.getRegistrador().toArray(), System.nanoTime() - start,
+                    processador.getErrorMessage(), captured == null ? "" : captured.getText(),
+                    processador.getMemoria().getResidentPages(),
+                    processador.getPipeline(), processador.getCache(), processador.getPreditor());
+        }
+    }
+
+    private static Memoria mapBinary(String binaryPath, Configuracao config) throws IOException, ProcessorException {
+        if (!binaryPath.toLowerCase().endsWith(".bin")) {
+            throw new ProcessorException("O arquivo informado não possui extensão .bin: " + binaryPath);
+        }
+        return new Memoria(new Lib().map_binary(binaryPath), config.getAddressBits());
+    }
+
+    public static ResultadoTarefa runJob(String binaryPath, Configuracao config) {
+        long start = System.nanoTime();
+        try {
+            return runJob(binaryPath, mapBinary(binaryPath, config), config, start);
+        } catch (Exception e) {
+            return failed(binaryPath, System.nanoTime() - start, e);
+        }
+    }
+
+    public static ResultadoTarefa runJob(String name, short[] program, Configuracao config) {
+        long start = System.nanoTime();
+        try {
+            return runJob(name, new Memoria(program, config.getAddressBits()), config, start);
+        } catch (ProcessorException e) {
+            return failed(name, System.nanoTime() - start, e);
+        }
+    }
+
+    public static ResultadoTarefa runJob(String name, byte[] image, Configuracao config) {
+        long start = System.nanoTime();
+        try {
+            return runJob(name, new Memoria(image, config.getAddressBits()), config, start);
+        } catch (ProcessorException e) {
+            return failed(name, System.nanoTime() - start, e);
+        }
+    }
+
+    private static ResultadoTarefa runJob(String name, Memoria memoria, Configuracao config, long start)
+            throws ProcessorException {
+        return new Execucao(name, memoria, config, start, null).runToEnd();
+    }
+
+    private static ResultadoTarefa failed(String name, long elapsedNanos, Throwable cause) {
+        return new ResultadoTarefa(name, StatusExecucao.ERRO, 0, 0, new short[new Registrador().size()],
+                elapsedNanos, cause.getMessage(), "", 0, null, null, null);
+    }
+
+    public static void writeReport(List<ResultadoTarefa> results, long wallNanos, PrintStream out) {
+        out.println(ResultadoTarefa.reportHeader());
+        Map<StatusExecucao, Integer> byStatus = new EnumMap<>(StatusExecucao.class);
+        long totalCycles = 0;
+        for (ResultadoTarefa result : results) {
+            out.println(result.toReportLine());
+            byStatus.merge(result.getStatus(), 1, Integer::sum);
+            totalCycles += result.getCycles();
+        }
+
+        out.println();
+        out.println("=== Resumo do lote ===");
+        out.println("Programas: " + results.size());
+        for (Map.Entry<StatusExecucao, Integer> entry : byStatus.entrySet()) {
+            out.println("  " + entry.getKey() + ": " + entry.getValue());
+        }
+        out.println("Ciclos totais: " + totalCycles);
+        out.printf("Tempo total: %.3f ms%n", wallNanos / 1_000_000.0);
+
+        boolean header = false;
+        for (ResultadoTarefa result : results) {
+            if (result.getPipeline() == null) {
+                continue;
+            }
+            if (!header) {
+                out.println();
+                out.println("=== Pipeline de 5 estágios ===");
+                out.println(ModeloPipeline.reportHeader());
+                header = true;
+            }
+            out.println(result.getPipeline().toReportLine(result.getName()));
+        }
+
+        header = false;
+        for (ResultadoTarefa result : results) {
+            if (result.getCache() == null) {
+                continue;
+            }
+            if (!header) {
+                out.println();
+                out.println("=== Hierarquia de Cache ===");
+                out.println(HierarquiaCache.reportHeader());
+                header = true;
+            }
+            out.println(result.getCache().toReportLine(result.getName()));
+        }
+
+        header = false;
+        for (ResultadoTarefa result : results) {
+            if (result.getPreditor() == null) {
+                continue;
+            }
+            if (!header) {
+                out.println();
+                out.println("=== Previsão de Desvios ===");
+                out.println(PreditorDesvios.reportHeader());
+                header = true;
+            }
+            out.println(result.getPreditor().toReportLine(result.getName()));
+        }
+
+        for (ResultadoTarefa result : results) {
+            if (!result.getOutput().isEmpty()) {
+                out.println();
+                out.println("=== Saída de " + result.getName() + " ===");
+                out.print(result.getOutput());
+            }
+        }
+    }
+}
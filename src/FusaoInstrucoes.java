@@ -0,0 +1,117 @@
+// Passo feito na carga que marca pares de instruções adjacentes executáveis num único despacho
+// (superinstruções). A marca fica no PC da primeira metade; um desvio que cai na segunda metade
+// encontra a instrução original, que continua decodificada normalmente.
+public class FusaoInstrucoes {
+    static final byte NONE = 0;
+    static final byte CMP_EQ_JUMP = 1;  // CMP_EQ rd + JUMP_COND rd
+    static final byte CMP_NEQ_JUMP = 2; // CMP_NEQ rd + JUMP_COND rd
+    static final byte MOV_ADD = 3;
+    static final byte MOV_LOAD = 4;
+    static final byte MOV_STORE = 5;
+
+    private final byte[] kinds;
+    // MOV + ADD/LOAD/STORE já traduzidos; uma falha não altera o estado, como em MotorBlocos
+    private final MotorBlocos.Operacao[] pairs;
+    private int fusedCount = 0;
+
+    public FusaoInstrucoes(ProgramaDecodificado programa) {
+        this(programa, classifyAll(programa));
+    }
+
+    // kinds já classificados (classifyAll ou CacheProgramas); só os pares são traduzidos
+    FusaoInstrucoes(ProgramaDecodificado programa, byte[] kinds) {
+        this.kinds = kinds;
+        this.pairs = new MotorBlocos.Operacao[programa.size()];
+        for (int pc = 0; pc + 1 < programa.size(); pc++) {
+            if (kinds[pc] >= MOV_ADD) {
+                pairs[pc] = translate(programa, pc, kinds[pc]);
+            }
+            if (kinds[pc] != NONE) {
+                fusedCount++;
+            }
+        }
+    }
+
+    static byte[] classifyAll(ProgramaDecodificado programa) {
+        byte[] kinds = new byte[programa.size()];
+        for (int pc = 0; pc + 1 < programa.size(); pc++) {
+            kinds[pc] = classify(programa, pc);
+        }
+        return kinds;
+    }
+
+    private static byte classify(ProgramaDecodificado programa, int pc) {
+        int next = pc + 1;
+        if (programa.isFormatR(pc)) {
+            int opcode = programa.getOpcode(pc);
+            if ((opcode == 4 || opcode == 5) && !programa.isFormatR(next) && programa.getOpcode(next) == 1
+                    && programa.getRd(next) == programa.getRd(pc)) {
+                return opcode == 4 ? CMP_EQ_JUMP : CMP_NEQ_JUMP;
+            }
+            return NONE;
+        }
+        if (programa.getOpcode(pc) != 3 || !programa.isFormatR(next)) {
+            return NONE;
+        }
+        switch (programa.getOpcode(next)) {
+            case 0:
+                return MOV_ADD;
+            case 15:
+                return MOV_LOAD;
+            case 16:
+                return MOV_STORE;
+            default:
+                return NONE;
+        }
+    }
+
+    // a segunda metade lê o valor que o MOV acabou de escrever, então os operandos iguais a
+    // movRd são substituídos pelo imediato; o MOV só é escrito depois do acesso à memória
+    private static MotorBlocos.Operacao translate(ProgramaDecodificado programa, int pc, byte kind) {
+        int movRd = programa.getRd(pc);
+        short imediato = (short) programa.getImmediateUnsigned(pc);
+        int rd = programa.getRd(pc + 1);
+        int rs1 = programa.getRs1(pc + 1);
+        int rs2 = programa.getRs2(pc + 1);
+        boolean rs1IsMov = rs1 == movRd;
+        boolean rs2IsMov = rs2 == movRd;
+
+        switch (kind) {
+            case MOV_ADD:
+                return (r, m) -> {
+                    r.set(movRd, imediato);
+                    r.set(rd, (short) (r.get(rs1) + r.get(rs2)));
+                    return true;
+                };
+            case MOV_LOAD:
+                return (r, m) -> {
+                    int value = m.tryReadData(rs1IsMov ? imediato : r.get(rs1));
+                    if (value == Memoria.FAULT) {
+                        return false;
+                    }
+                    r.set(movRd, imediato);
+                    r.set(rd, (short) value);
+                    return true;
+                };
+            default:
+                return (r, m) -> {
+                    if (!m.tryWriteData(rs1IsMov ? imediato : r.get(rs1), rs2IsMov ? imediato : r.get(rs2))) {
+                        return false;
+                    }
+                    r.set(movRd, imediato);
+                    return true;
+                };
+        }
+    }
+
+    byte kindAt(int pc) {
+        return pc >= 0 && pc < kinds.length ? kinds[pc] : NONE;
+    }
+
+    MotorBlocos.Operacao pairAt(int pc) {
+        return pairs[pc];
+    }
+
+    // quantos pares foram marcados no programa
+    public int getFusedCount() { return fusedCount; }
+}
@@ -0,0 +1,206 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Gera programas aleatórios válidos (formatos R e I só com opcodes conhecidos, desvios dentro do
+// programa, pares que a fusão reconhece e syscalls precedidos do MOV do serviço) e os verifica
+// com o VerificadorDiferencial em várias threads. O caso i depende só da semente e de i, então
+// uma divergência é reproduzida com generate(seed, i).
+public class FuzzerDiferencial {
+    public static final long DEFAULT_MAX_CYCLES = 5000;
+    private static final int MIN_LENGTH = 4;
+    private static final int MAX_LENGTH = 64;
+    private static final int DATA_WORDS = 16;
+    // sem exit (0), que encerraria quase todos os programas cedo; o fim do programa e o limite de
+    // ciclos encerram os demais
+    private static final int[] SERVICES = {1, 2, 3, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+
+    private final Configuracao candidate;
+    private final ModoVerificacao mode;
+    private final int threads;
+    private final long seed;
+
+    public static final class Caso {
+        public final long index;
+        public final short[] program;
+        public final short[] registers;
+        public final short[] data;
+
+        private Caso(long index, short[] program, short[] registers, short[] data) {
+            this.index = index;
+            this.program = program;
+            this.registers = registers;
+            this.data = data;
+        }
+    }
+
+    public static final class Resultado {
+        private final long programs;
+        private final long cycles;
+        private final long elapsedNanos;
+        private final Caso failingCase;
+        private final VerificadorDiferencial.Divergencia divergencia;
+
+        private Resultado(long programs, long cycles, long elapsedNanos, Caso failingCase,
+                          VerificadorDiferencial.Divergencia divergencia) {
+            this.programs = programs;
+            this.cycles = cycles;
+            this.elapsedNanos = elapsedNanos;
+            this.failingCase = failingCase;
+            this.divergencia = divergencia;
+        }
+
+        public long getPrograms() { return programs; }
+        public long getCycles() { return cycles; }
+        public long getElapsedNanos() { return elapsedNanos; }
+        // caso de menor índice com divergência, ou null
+        public Caso getFailingCase() { return failingCase; }
+        public VerificadorDiferencial.Divergencia getDivergencia() { return divergencia; }
+    }
+
+    // sem limite de ciclos explícito no candidato, cada programa roda até DEFAULT_MAX_CYCLES
+    public FuzzerDiferencial(Configuracao candidate, ModoVerificacao mode, int threads, long seed) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Número de threads deve ser positivo: " + threads);
+        }
+        this.candidate = candidate.getMaxCycles() == Configuracao.DEFAULT_MAX_CYCLES
+                ? candidate.copy().maxCycles(DEFAULT_MAX_CYCLES) : candidate.copy();
+        this.mode = mode;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    // verifica os casos 0 a count - 1; ao achar uma divergência as threads param de pegar casos
+    // novos, mas terminam os de índice menor, para que o caso relatado seja sempre o mesmo
+    public Resultado run(long count) throws InterruptedException {
+        AtomicLong next = new AtomicLong();
+        AtomicLong failing = new AtomicLong(Long.MAX_VALUE);
+        LongAdder programs = new LongAdder();
+        LongAdder cycles = new LongAdder();
+        // caso e divergência de menor índice, sob o lock de failingCase
+        Caso[] failingCase = new Caso[1];
+        VerificadorDiferencial.Divergencia[] found = new VerificadorDiferencial.Divergencia[1];
+        RuntimeException[] error = new RuntimeException[1];
+
+        long start = System.nanoTime();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = Thread.ofPlatform().name("fuzzer-" + t).start(() -> {
+                VerificadorDiferencial verificador = new VerificadorDiferencial(candidate, mode);
+                long index;
+                while ((index = next.getAndIncrement()) < count && index < failing.get()) {
+                    Caso caso = generate(seed, index);
+                    VerificadorDiferencial.Divergencia divergencia;
+                    try {
+                        divergencia = verificador.verify(caso.program, caso.registers, caso.data);
+                    } catch (ProcessorException | RuntimeException e) {
+                        synchronized (error) {
+                            if (error[0] == null) {
+                                error[0] = new IllegalStateException("Erro no caso " + index + ": " + e.getMessage(), e);
+                            }
+                        }
+                        failing.accumulateAndGet(index, Math::min);
+                        return;
+                    }
+                    programs.increment();
+                    cycles.add(verificador.getCycles());
+                    if (divergencia != null) {
+                        synchronized (failingCase) {
+                            if (failingCase[0] == null || failingCase[0].index > index) {
+                                failingCase[0] = caso;
+                                found[0] = divergencia;
+                            }
+                        }
+                        failing.accumulateAndGet(index, Math::min);
+                    }
+                }
+            });
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (error[0] != null) {
+            throw error[0];
+        }
+        return new Resultado(programs.sum(), cycles.sum(), System.nanoTime() - start, failingCase[0], found[0]);
+    }
+
+    public static Caso generate(long seed, long index) {
+        SplittableRandom rnd = new SplittableRandom(seed ^ (index * 0x9E3779B97F4A7C15L));
+        int length = MIN_LENGTH + rnd.nextInt(MAX_LENGTH - MIN_LENGTH + 1);
+        short[] program = new short[length];
+        int pc = 0;
+        while (pc < length) {
+            int rd = rnd.nextInt(8);
+            int rs1 = rnd.nextInt(8);
+            int rs2 = rnd.nextInt(8);
+            // alvos vão de 0 a length: saltar para length é sair do programa (falha de busca)
+            int target = rnd.nextInt(length + 1);
+            boolean pair = pc + 1 < length;
+            switch (rnd.nextInt(16)) {
+                case 0:
+                case 1:
+                case 2:
+                    program[pc++] = Instrucao.encodeR(rnd.nextInt(3), rd, rs1, rs2); // ADD, SUB, MUL
+                    break;
+                case 3:
+                    program[pc++] = Instrucao.encodeR(3, rd, rs1, rs2); // DIV
+                    break;
+                case 4:
+                    program[pc++] = Instrucao.encodeR(15, rd, rs1, rs2); // LOAD
+                    break;
+                case 5:
+                    program[pc++] = Instrucao.encodeR(16, rd, rs1, rs2); // STORE
+                    break;
+                case 6:
+                case 7:
+                    // endereços pequenos caem na área de dados semeada
+                    program[pc++] = Instrucao.encodeI(3, rd, rnd.nextInt(DATA_WORDS));
+                    break;
+                case 8:
+                    program[pc++] = Instrucao.encodeI(3, rd, rnd.nextInt(1 << 10));
+                    break;
+                case 9:
+                    program[pc++] = Instrucao.encodeI(0, 0, target); // JUMP
+                    break;
+                case 10:
+                    program[pc++] = Instrucao.encodeI(1, rd, target); // JUMP_COND
+                    break;
+                case 11:
+                case 12:
+                    // CMP + JUMP_COND no mesmo registrador (superinstrução)
+                    program[pc++] = Instrucao.encodeR(4 + rnd.nextInt(2), rd, rs1, rs2);
+                    if (pair) {
+                        program[pc++] = Instrucao.encodeI(1, rd, target);
+                    }
+                    break;
+                case 13:
+                case 14:
+                    // MOV + ADD/LOAD/STORE (superinstrução), às vezes lendo o registrador do MOV
+                    program[pc++] = Instrucao.encodeI(3, rs1, rnd.nextInt(DATA_WORDS));
+                    if (pair) {
+                        int[] opcodes = {0, 15, 16};
+                        program[pc++] = Instrucao.encodeR(opcodes[rnd.nextInt(3)], rd, rs1,
+                                rnd.nextBoolean() ? rs1 : rs2);
+                    }
+                    break;
+                default:
+                    if (pair) {
+                        program[pc++] = Instrucao.encodeI(3, 0, SERVICES[rnd.nextInt(SERVICES.length)]);
+                    }
+                    program[pc++] = Instrucao.encodeR(63, 0, 0, 0);
+                    break;
+            }
+        }
+
+        short[] registers = new short[8];
+        for (int register = 0; register < registers.length; register++) {
+            registers[register] = (short) (rnd.nextInt(4) == 0 ? rnd.nextInt(1 << 16) : rnd.nextInt(DATA_WORDS) - 1);
+        }
+        short[] data = new short[DATA_WORDS];
+        for (int address = 0; address < data.length; address++) {
+            data[address] = (short) (rnd.nextBoolean() ? rnd.nextInt(4) : rnd.nextInt(1 << 16));
+        }
+        return new Caso(index, program, registers, data);
+    }
+}
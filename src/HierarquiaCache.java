@@ -0,0 +1,58 @@
+import java.io.PrintStream;
+
+// L1I e L1D na frente da Memoria, com L2 unificada opcional. Acumula os ciclos de espera que
+// as falhas somam ao ciclo de cada instrução.
+public class HierarquiaCache {
+    private final NivelCache instructionL1;
+    private final NivelCache dataL1;
+    private final NivelCache unifiedL2;
+    private long stallCycles = 0;
+
+    public HierarquiaCache(ConfiguracaoCache config) {
+        int memoryLatency = config.getMemoryLatency();
+        this.unifiedL2 = config.getUnifiedL2() == null ? null
+                : new NivelCache("L2", config.getUnifiedL2(), null, memoryLatency);
+        this.instructionL1 = new NivelCache("L1I", config.getInstructionL1(), unifiedL2, memoryLatency);
+        this.dataL1 = new NivelCache("L1D", config.getDataL1(), unifiedL2, memoryLatency);
+    }
+
+    // endereços físicos em palavras: instruções a partir de 0, dados a partir de Memoria.DATA_START
+    int fetch(int address) {
+        int latency = instructionL1.access(address, false);
+        stallCycles += latency;
+        return latency;
+    }
+
+    int data(int address, boolean write) {
+        int latency = dataL1.access(address, write);
+        stallCycles += latency;
+        return latency;
+    }
+
+    public NivelCache getInstructionL1() { return instructionL1; }
+    public NivelCache getDataL1() { return dataL1; }
+    public NivelCache getUnifiedL2() { return unifiedL2; }
+    public long getStallCycles() { return stallCycles; }
+
+    public void printSummary(PrintStream out, long cycles) {
+        out.println("\n=== Hierarquia de Cache ===");
+        instructionL1.printSummary(out);
+        dataL1.printSummary(out);
+        if (unifiedL2 != null) {
+            unifiedL2.printSummary(out);
+        }
+        out.println("Ciclos de espera por memória: " + stallCycles);
+        out.println("Ciclos com latência de memória: " + (cycles + stallCycles));
+    }
+
+    public static String reportHeader() {
+        return "arquivo;l1i_acertos;l1i_falhas;l1d_acertos;l1d_falhas;l1d_expulsoes;l2_acertos;l2_falhas;ciclos_espera";
+    }
+
+    public String toReportLine(String name) {
+        return name + ';' + instructionL1.getHits() + ';' + instructionL1.getMisses() + ';'
+                + dataL1.getHits() + ';' + dataL1.getMisses() + ';' + dataL1.getEvictions() + ';'
+                + (unifiedL2 == null ? "" : unifiedL2.getHits()) + ';'
+                + (unifiedL2 == null ? "" : unifiedL2.getMisses()) + ';' + stallCycles;
+    }
+}
@@ -0,0 +1,273 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Registro de desfazer da execução (Configuracao.history): a cada ciclo guarda só o que o ciclo
+// sobrescreveu, em longs empacotados num vetor de blocos, para Processador.stepBack/goToCycle.
+//
+// Cada ciclo começa com uma entrada CYCLE (PC anterior e, se houve, o registrador sobrescrito
+// com o valor antigo), seguida das entradas MEMORY (endereço de dados e valor antigo) e STATE
+// (campo do modelo de falhas ou do relógio e valor antigo) do mesmo ciclo. Desfazer um ciclo é
+// desempilhar até a entrada CYCLE.
+//
+// A cada snapshotInterval ciclos o Processador guarda um Checkpoint (copy-on-write). Quando o
+// registro passa de maxEntries, os blocos mais antigos são descartados; voltar para antes do
+// início do registro restaura o snapshot anterior e reexecuta até o ciclo pedido.
+public final class HistoricoExecucao {
+    public static final long DEFAULT_SNAPSHOT_INTERVAL = 1 << 16;
+    public static final long DEFAULT_MAX_ENTRIES = 1 << 22; // 32 MB
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    // o ciclo aberto pode começar no bloco anterior ao atual, que não pode ser descartado
+    public static final long MIN_ENTRIES = 2L * CHUNK_SIZE;
+
+    static final long KIND_MASK = 3L << 62;
+    static final long CYCLE = 0;
+    static final long MEMORY = 1L << 62;
+    static final long STATE = 2L << 62;
+    private static final long HAS_REGISTER = 1L << 32;
+    private static final long VALUE_MASK = (1L << 48) - 1;
+
+    // campos de estado das entradas STATE
+    static final int FIELD_TRAP_HANDLER = 0;
+    static final int FIELD_FAULT_CODE = 1;
+    static final int FIELD_FAULT_ARG = 2;
+    static final int FIELD_FAULT_PC = 3;
+    static final int FIELD_TRAP_COUNT = 4;
+    static final int FIELD_SLEPT_SECONDS = 5;
+
+    private final long snapshotInterval;
+    private final long maxEntries;
+
+    // posições absolutas: a entrada p fica em chunks.get((p - base) >>> CHUNK_SHIFT)
+    private final List<long[]> chunks = new ArrayList<>();
+    private long[] current;
+    private int offset;
+    private long[] spare; // bloco descartado, reaproveitado no próximo crescimento
+    private long base;
+    private long size;
+    private long start;      // primeira entrada CYCLE que ainda pode ser desfeita
+    private long startCycle; // ciclo antes dela
+    private long[] cycleChunk;
+    private int cycleOffset;
+
+    private final List<Snapshot> snapshots = new ArrayList<>();
+    private long nextSnapshotCycle;
+
+    static final class Snapshot {
+        final Processador.Checkpoint checkpoint;
+        final long position;
+
+        Snapshot(Processador.Checkpoint checkpoint, long position) {
+            this.checkpoint = checkpoint;
+            this.position = position;
+        }
+    }
+
+    public HistoricoExecucao(long snapshotInterval, long maxEntries) {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Intervalo entre snapshots deve ser positivo: " + snapshotInterval);
+        }
+        if (maxEntries < MIN_ENTRIES) {
+            throw new IllegalArgumentException("O histórico precisa de pelo menos " + MIN_ENTRIES + " entradas: "
+                    + maxEntries);
+        }
+        this.snapshotInterval = snapshotInterval;
+        this.maxEntries = maxEntries;
+        reset(0);
+    }
+
+    // esquece o registro e os snapshots; a execução continua a partir de cycle
+    void reset(long cycle) {
+        chunks.clear();
+        current = new long[CHUNK_SIZE];
+        chunks.add(current);
+        offset = 0;
+        base = size = start = 0;
+        startCycle = cycle;
+        snapshots.clear();
+        nextSnapshotCycle = cycle;
+    }
+
+    boolean snapshotDue(long cycle) {
+        return cycle >= nextSnapshotCycle;
+    }
+
+    void addSnapshot(Processador.Checkpoint checkpoint) {
+        snapshots.add(new Snapshot(checkpoint, size));
+        nextSnapshotCycle = checkpoint.getCycleCount() + snapshotInterval;
+    }
+
+    // abre o ciclo que começa em pc
+    void beginCycle(int pc) {
+        if (offset == CHUNK_SIZE) {
+            grow();
+        }
+        cycleChunk = current;
+        cycleOffset = offset;
+        current[offset++] = CYCLE | (pc & 0xFFFFFFFFL);
+        size++;
+    }
+
+    // o registrador escrito pelo ciclo aberto; cada ciclo escreve no máximo um
+    void recordRegister(int index, short old) {
+        cycleChunk[cycleOffset] |= HAS_REGISTER | (long) index << 33 | (long) (old & 0xFFFF) << 36;
+    }
+
+    void recordMemory(int address, short old) {
+        append(MEMORY | (address & 0xFFFFFFFFL) | (long) (old & 0xFFFF) << 32);
+    }
+
+    void recordState(int field, long old) {
+        append(STATE | (long) field << 48 | (old & VALUE_MASK));
+    }
+
+    private void append(long entry) {
+        if (offset == CHUNK_SIZE) {
+            grow();
+        }
+        current[offset++] = entry;
+        size++;
+    }
+
+    private void grow() {
+        if (size - base + CHUNK_SIZE > maxEntries) {
+            dropOldestChunk();
+        }
+        current = spare != null ? spare : new long[CHUNK_SIZE];
+        spare = null;
+        chunks.add(current);
+        offset = 0;
+    }
+
+    // descarta o bloco mais antigo; entradas órfãs no início do seguinte (de um ciclo cuja
+    // entrada CYCLE foi descartada) deixam de ser desfeitas
+    private void dropOldestChunk() {
+        long newBase = base + CHUNK_SIZE;
+        long position = start;
+        while (position < newBase) {
+            if ((get(position) & KIND_MASK) == CYCLE) {
+                startCycle++;
+            }
+            position++;
+        }
+        while (position < size && (get(position) & KIND_MASK) != CYCLE) {
+            position++;
+        }
+        spare = chunks.remove(0);
+        base = newBase;
+        start = position;
+    }
+
+    private long get(long position) {
+        long index = position - base;
+        return chunks.get((int) (index >>> CHUNK_SHIFT))[(int) (index & (CHUNK_SIZE - 1))];
+    }
+
+    boolean canStepBack() {
+        return size > start;
+    }
+
+    // próxima entrada a desfazer, do fim para o começo
+    long pop() {
+        if (offset == 0) {
+            spare = chunks.remove(chunks.size() - 1);
+            current = chunks.get(chunks.size() - 1);
+            offset = CHUNK_SIZE;
+        }
+        size--;
+        return current[--offset];
+    }
+
+    // depois de desfazer até cycle, os snapshots posteriores descrevem um futuro que pode não
+    // se repetir
+    void rewound(long cycle) {
+        while (!snapshots.isEmpty() && snapshots.get(snapshots.size() - 1).checkpoint.getCycleCount() > cycle) {
+            snapshots.remove(snapshots.size() - 1);
+        }
+        nextSnapshotCycle = snapshots.isEmpty() ? cycle
+                : snapshots.get(snapshots.size() - 1).checkpoint.getCycleCount() + snapshotInterval;
+    }
+
+    // primeiro ciclo que ainda pode ser desfeito sem reexecutar
+    public long getOldestCycle() {
+        return startCycle;
+    }
+
+    // snapshot mais recente com ciclo <= cycle, ou null
+    Snapshot snapshotAtOrBefore(long cycle) {
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            if (snapshots.get(i).checkpoint.getCycleCount() <= cycle) {
+                return snapshots.get(i);
+            }
+        }
+        return null;
+    }
+
+    // volta o registro ao ponto do snapshot, descartando o que veio depois dele
+    void truncate(Snapshot snapshot) {
+        while (snapshots.get(snapshots.size() - 1) != snapshot) {
+            snapshots.remove(snapshots.size() - 1);
+        }
+        nextSnapshotCycle = snapshot.checkpoint.getCycleCount() + snapshotInterval;
+        if (snapshot.position < start) {
+            // o trecho já foi descartado: recomeça vazio a partir do snapshot
+            chunks.clear();
+            current = new long[CHUNK_SIZE];
+            chunks.add(current);
+            offset = 0;
+            base = size = start = snapshot.position;
+            startCycle = snapshot.checkpoint.getCycleCount();
+            return;
+        }
+        int keep = (int) ((snapshot.position - base) >>> CHUNK_SHIFT);
+        while (chunks.size() > keep + 1) {
+            chunks.remove(chunks.size() - 1);
+        }
+        current = chunks.get(keep);
+        offset = (int) (snapshot.position - base - ((long) keep << CHUNK_SHIFT));
+        size = snapshot.position;
+    }
+
+    // ciclo (numerado como Processador.getCycleCount() ao fim dele) da última escrita no
+    // endereço de dados, ou -1 se não houve escrita dentro do registro
+    public long lastMemoryWrite(int address, long currentCycle) {
+        long cycle = currentCycle;
+        for (long position = size - 1; position >= start; position--) {
+            long entry = get(position);
+            if ((entry & KIND_MASK) == CYCLE) {
+                cycle--;
+            } else if ((entry & KIND_MASK) == MEMORY && (int) entry == address) {
+                return cycle;
+            }
+        }
+        return -1;
+    }
+
+    // mesmo que lastMemoryWrite, para o registrador index
+    public long lastRegisterWrite(int index, long currentCycle) {
+        long cycle = currentCycle;
+        for (long position = size - 1; position >= start; position--) {
+            long entry = get(position);
+            if ((entry & KIND_MASK) == CYCLE) {
+                if ((entry & HAS_REGISTER) != 0 && registerIndex(entry) == index) {
+                    return cycle;
+                }
+                cycle--;
+            }
+        }
+        return -1;
+    }
+
+    public long getEntryCount() { return size - start; }
+    public int getSnapshotCount() { return snapshots.size(); }
+
+    static int previousPc(long cycleEntry) { return (int) cycleEntry; }
+    static boolean hasRegister(long cycleEntry) { return (cycleEntry & HAS_REGISTER) != 0; }
+    static int registerIndex(long cycleEntry) { return (int) (cycleEntry >>> 33) & 7; }
+    static short registerValue(long cycleEntry) { return (short) (cycleEntry >>> 36); }
+    static int memoryAddress(long entry) { return (int) entry; }
+    static short memoryValue(long entry) { return (short) (entry >>> 32); }
+    static int stateField(long entry) { return (int) (entry >>> 48) & 0xF; }
+    static long stateValue(long entry) { return entry << 16 >> 16; }
+}
@@ -31,6 +31,14 @@ public class Instrucao {
         }
     }
 
+    public static short encodeR(int opcode, int rd, int rs1, int rs2) {
+        return (short) (((opcode & 0x3F) << 9) | ((rd & 0x7) << 6) | ((rs1 & 0x7) << 3) | (rs2 & 0x7));
+    }
+
+    public static short encodeI(int opcode, int rd, int immediate10) {
+        return (short) (0x8000 | ((opcode & 0x3) << 13) | ((rd & 0x7) << 10) | (immediate10 & 0x3FF));
+    }
+
     public short getRaw() { return raw; }
     public int getUnsignedRaw() { return unsignedRaw; }
     public int getFormatBit() { return formatBit; }
@@ -52,6 +60,33 @@ public class Instrucao {
         }
     }
 
+    public String getMnemonic() {
+        return mnemonic(isFormatR(), opcode);
+    }
+
+    public static String mnemonic(boolean formatR, int opcode) {
+        if (formatR) {
+            switch (opcode) {
+                case 0: return "ADD";
+                case 1: return "SUB";
+                case 2: return "MUL";
+                case 3: return "DIV";
+                case 4: return "CMP_EQ";
+                case 5: return "CMP_NEQ";
+                case 15: return "LOAD";
+                case 16: return "STORE";
+                case 63: return "SYSCALL";
+                default: return "R" + opcode + "?";
+            }
+        }
+        switch (opcode) {
+            case 0: return "JUMP";
+            case 1: return "JUMP_COND";
+            case 3: return "MOV";
+            default: return "I" + opcode + "?";
+        }
+    }
+
     @Override
     public String toString() {
         if (isFormatR()) {
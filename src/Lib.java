@@ -1,6 +1,10 @@
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 public class Lib {
     public short extract_bits(short value, int bstart, int blength) {
@@ -13,27 +17,39 @@ public class Lib {
     }
 
     public short[] load_binary(String binary_name) throws IOException {
-        try (FileInputStream fileInputStream = new FileInputStream(binary_name);
-             DataInputStream dataInputStream = new DataInputStream(fileInputStream)) {
+        return load_binary(map_binary(binary_name));
+    }
 
-            long fileSize = fileInputStream.getChannel().size();
-            if (fileSize % 2 != 0) {
-                throw new IOException("Arquivo binário tem tamanho ímpar, não é válido para instruções de 16 bits");
-            }
+    public short[] load_binary(byte[] image) throws IOException {
+        return load_binary(ByteBuffer.wrap(image));
+    }
 
-            int numInstructions = (int) (fileSize / 2);
-            short[] instructions = new short[numInstructions];
+    public short[] load_binary(ByteBuffer image) throws IOException {
+        ShortBuffer instructions = as_instructions(image);
+        short[] program = new short[instructions.remaining()];
+        instructions.get(program);
+        return program;
+    }
 
-            for (int i = 0; i < numInstructions; i++) {
-                int low = dataInputStream.readByte() & 0xFF;
-                int high = dataInputStream.readByte() & 0xFF;
-                instructions[i] = (short) (low | (high << 8));
+    // mapeia o arquivo inteiro em memória, sem cópia para o heap
+    public ByteBuffer map_binary(String binary_name) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(binary_name), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize % 2 != 0) {
+                throw new IOException("Arquivo binário tem tamanho ímpar, não é válido para instruções de 16 bits");
             }
-
-            return instructions;
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
 
         } catch (IOException e) {
             throw new IOException("Erro ao ler arquivo binário '" + binary_name + "': " + e.getMessage());
         }
     }
+
+    // visão little-endian das instruções de 16 bits da imagem, a partir da posição atual
+    public ShortBuffer as_instructions(ByteBuffer image) throws IOException {
+        if (image.remaining() % 2 != 0) {
+            throw new IOException("Imagem binária tem tamanho ímpar, não é válida para instruções de 16 bits");
+        }
+        return image.duplicate().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    }
 }
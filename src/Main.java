@@ -1,25 +1,296 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
 
 public class Main {
     public static void main(String[] args) {
+        Configuracao config = new Configuracao();
+        String batchPath = null;
+        String reportPath = null;
+        String serverAddress = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean virtualThreads = false;
+        int cores = 1;
+        String programCacheDir = null;
+        long programCacheBytes = CacheProgramas.DEFAULT_MAX_BYTES;
+        ModoVerificacao verifyMode = null;
+        long fuzzPrograms = 0;
+        long fuzzSeed = System.nanoTime();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--blocos":
+                        config.motor(Motor.BLOCOS);
+                        break;
+                    case "--lote":
+                        batchPath = requireValue(args, ++i);
+                        break;
+                    case "--ciclos":
+                        config.maxCycles(Long.parseLong(requireValue(args, ++i)));
+                        break;
+                    case "--tempo":
+                        config.maxTimeMillis(Long.parseLong(requireValue(args, ++i)));
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(requireValue(args, ++i));
+                        break;
+                    case "--virtuais":
+                        virtualThreads = true;
+                        break;
+                    case "--trace":
+                        config.tracePath(requireValue(args, ++i));
+                        break;
+                    case "--perfil":
+                        config.profiling(true);
+                        break;
+                    case "--detectar-laco":
+                        config.loopDetection(true);
+                        break;
+                    case "--pipeline":
+                        config.pipeline(true);
+                        break;
+                    case "--cache":
+                        if (config.getCache() == null) {
+                            config.cache(new ConfiguracaoCache());
+                        }
+                        break;
+                    case "--cache-l2":
+                        config.cache(config.getCache() == null ? new ConfiguracaoCache().defaultL2()
+                                : config.getCache().defaultL2());
+                        break;
+                    case "--preditor":
+                        config.predictor(TipoPreditor.valueOf(requireValue(args, ++i).toUpperCase()));
+                        break;
+                    case "--sem-fusao":
+                        config.fusion(false);
+                        break;
+                    case "--relogio":
+                        config.clock(ModoRelogio.valueOf(requireValue(args, ++i).toUpperCase()));
+                        break;
+                    case "--frequencia":
+                        config.clockHz(Long.parseLong(requireValue(args, ++i)));
+                        break;
+                    case "--memoria-bits":
+                        config.addressBits(Integer.parseInt(requireValue(args, ++i)));
+                        break;
+                    case "--tratador":
+                        config.trapHandler(Integer.parseInt(requireValue(args, ++i)));
+                        break;
+                    case "--cache-programas":
+                        programCacheDir = requireValue(args, ++i);
+                        break;
+                    case "--cache-programas-mb":
+                        programCacheBytes = Long.parseLong(requireValue(args, ++i)) << 20;
+                        break;
+                    case "--nucleos":
+                        cores = Integer.parseInt(requireValue(args, ++i));
+                        break;
+                    case "--verificar":
+                        verifyMode = ModoVerificacao.valueOf(requireValue(args, ++i).toUpperCase());
+                        break;
+                    case "--fuzz":
+                        fuzzPrograms = Long.parseLong(requireValue(args, ++i));
+                        break;
+                    case "--semente":
+                        fuzzSeed = Long.parseLong(requireValue(args, ++i));
+                        break;
+                    case "--servidor":
+                        serverAddress = requireValue(args, ++i);
+                        break;
+                    case "--relatorio":
+                        reportPath = requireValue(args, ++i);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+                }
+            }
+            if (cores > 1) {
+                SistemaMulticore.checkSupported(config);
+            }
+            if (batchPath != null) {
+                ExecutorLote.checkSupported(config);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Erro: " + e.getMessage());
+            return;
+        }
+
+        if (programCacheDir != null) {
+            try {
+                config.programCache(new CacheProgramas(Paths.get(programCacheDir), programCacheBytes));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Erro ao abrir o cache de programas: " + e.getMessage());
+                return;
+            }
+        }
+
+        if (serverAddress != null) {
+            try {
+                new ServidorSimulacao(config).serve(serverAddress);
+            } catch (Exception e) {
+                System.err.println("Erro: " + e.getMessage());
+            }
+            return;
+        }
+
+        if (fuzzPrograms > 0) {
+            runFuzzer(fuzzPrograms, fuzzSeed, config,
+                    verifyMode != null ? verifyMode : ModoVerificacao.CICLO, threads);
+            return;
+        }
+
+        if (batchPath != null) {
+            if (verifyMode != null) {
+                verifyBatch(batchPath, config, verifyMode);
+            } else {
+                runBatch(batchPath, reportPath, config, threads, virtualThreads);
+            }
+            return;
+        }
+
         Scanner sc = new Scanner(System.in);
         System.out.print("Adicione o caminho para o código binário: ");
         String path = sc.nextLine();
 
+        if (verifyMode != null) {
+            sc.close();
+            try {
+                verifyProgram(path, new VerificadorDiferencial(config, verifyMode));
+            } catch (Exception e) {
+                System.err.println("Erro: " + e.getMessage());
+            }
+            return;
+        }
+
         System.out.print("Habilitar o modo debug? (y/n): ");
-        boolean debugMode = sc.nextLine().toLowerCase().startsWith("y");
+        config.debugMode(sc.nextLine().toLowerCase().startsWith("y"));
         sc.close();
 
+        if (cores > 1) {
+            runMulticore(path, cores, config);
+            return;
+        }
+
         try {
 
-            Memoria memoria = new Memoria(path);
+            Memoria memoria = new Memoria(path, config.getAddressBits());
             Registrador registrador = new Registrador();
 
-            Processador processador = new Processador(memoria, registrador, debugMode);
+            Processador processador = new Processador(memoria, registrador, config);
             processador.run();
         } catch (Exception e) {
             System.err.println("Erro: " + e.getMessage());
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    private static void runBatch(String batchPath, String reportPath, Configuracao config,
+                                 int threads, boolean virtualThreads) {
+        try {
+            List<String> programs = ExecutorLote.listPrograms(batchPath);
+            ExecutorLote executor = new ExecutorLote(config, threads, virtualThreads);
+
+            long start = System.nanoTime();
+            List<ResultadoTarefa> results = executor.runAll(programs);
+            long wallNanos = System.nanoTime() - start;
+
+            if (reportPath == null) {
+                ExecutorLote.writeReport(results, wallNanos, System.out);
+            } else {
+                try (PrintStream out = new PrintStream(reportPath)) {
+                    ExecutorLote.writeReport(results, wallNanos, out);
+                }
+                System.out.println("Relatório gravado em " + reportPath);
+            }
+            CacheProgramas programCache = config.getProgramCache();
+            if (programCache != null) {
+                System.out.println("Cache de programas: " + programCache.getHits() + " acertos, "
+                        + programCache.getMisses() + " faltas, " + programCache.getErrors() + " erros");
+            }
+        } catch (FileNotFoundException e) {
+            System.err.println("Erro ao gravar relatório: " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Erro: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void runMulticore(String path, int cores, Configuracao config) {
+        try {
+            SistemaMulticore sistema = SistemaMulticore.open(path, cores, config);
+            long start = System.nanoTime();
+            List<ResultadoTarefa> results = sistema.run();
+            ExecutorLote.writeReport(results, System.nanoTime() - start, System.out);
+        } catch (Exception e) {
+            System.err.println("Erro: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // compara o motor configurado (--blocos, --sem-fusao, ...) com o interpretador de referência
+    private static boolean verifyProgram(String path, VerificadorDiferencial verificador)
+            throws IOException, ProcessorException {
+        VerificadorDiferencial.Divergencia divergencia = verificador.verify(new Lib().load_binary(path), null, null);
+        if (divergencia != null) {
+            System.out.println(path + ": " + divergencia);
+            return false;
+        }
+        System.out.println(path + ": sem divergências em " + verificador.getCycles() + " ciclos ("
+                + verificador.getComparisons() + " comparações)");
+        return true;
+    }
+
+    private static void verifyBatch(String batchPath, Configuracao config, ModoVerificacao mode) {
+        try {
+            VerificadorDiferencial verificador = new VerificadorDiferencial(config, mode);
+            int divergent = 0;
+            List<String> programs = ExecutorLote.listPrograms(batchPath);
+            for (String program : programs) {
+                if (!verifyProgram(program, verificador)) {
+                    divergent++;
+                }
+            }
+            System.out.println(programs.size() + " programas verificados, " + divergent + " com divergência");
+        } catch (Exception e) {
+            System.err.println("Erro: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void runFuzzer(long programs, long seed, Configuracao config, ModoVerificacao mode, int threads) {
+        try {
+            FuzzerDiferencial.Resultado resultado = new FuzzerDiferencial(config, mode, threads, seed).run(programs);
+            double seconds = resultado.getElapsedNanos() / 1_000_000_000.0;
+            System.out.printf("Fuzzer (semente %d): %d programas, %d ciclos em %.1f s (%.0f programas/s, %.0f ciclos/s)%n",
+                    seed, resultado.getPrograms(), resultado.getCycles(), seconds,
+                    resultado.getPrograms() / seconds, resultado.getCycles() / seconds);
+            FuzzerDiferencial.Caso caso = resultado.getFailingCase();
+            if (caso != null) {
+                System.out.println("Caso " + caso.index + " (reproduzível com --semente " + seed + "):");
+                StringBuilder program = new StringBuilder();
+                for (int pc = 0; pc < caso.program.length; pc++) {
+                    program.append(String.format("%s%04X", pc % 16 == 0 ? "\n    " : " ", caso.program[pc] & 0xFFFF));
+                }
+                System.out.println("  programa:" + program);
+                System.out.println("  registradores: " + Arrays.toString(caso.registers));
+                System.out.println("  dados: " + Arrays.toString(caso.data));
+                System.out.print(resultado.getDivergencia());
+            }
+        } catch (Exception e) {
+            System.err.println("Erro: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static String requireValue(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Valor ausente para " + args[index - 1]);
+        }
+        return args[index];
+    }
+}
@@ -1,16 +1,101 @@
-public class Memoria {
-    private static final int MEMORY_SIZE = 65536; // 64KB
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+public class Memoria implements AcessoMemoria {
+    public static final int DEFAULT_ADDRESS_BITS = 16; // 64K palavras
+    public static final int MAX_ADDRESS_BITS = 24;
+    // devolvido por tryReadInstruction/tryReadData no lugar de uma exceção; nenhum short vale isso
+    public static final int FAULT = Integer.MIN_VALUE;
     private static final int INSTRUCTION_START = 0;
-    private static final int DATA_START = 1024; // Área de dados começa em 1024
+    static final int DATA_START = 1024; // Área de dados começa em 1024
+
+    // a memória é dividida em páginas de 4 KB compartilhadas com os checkpoints (copy-on-write)
+    // e alocadas só na primeira escrita: uma página null é lida como zeros
+    static final int PAGE_SHIFT = 11;
+    static final int PAGE_WORDS = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_WORDS - 1;
+    private static final short[] ZERO_PAGE = new short[PAGE_WORDS];
 
-    private final short[] memory;
+    private final int memorySize;
+    private short[][] pages;
+    // uma página só pode ser escrita diretamente se pageGeneration[p] == generation;
+    // checkpoint e restore incrementam generation, tornando todas as páginas compartilhadas
+    private final int[] pageGeneration;
+    private int generation = 0;
     private int instructionCount = 0;
 
+    // hash do conteúdo da memória de dados, atualizado a cada escrita (Zobrist): estados
+    // iguais têm o mesmo hash, independentemente da ordem das escritas
+    private boolean contentHashEnabled = false;
+    private long contentHash = 0;
+
+    public static final class Checkpoint {
+        private final short[][] pages;
+        private final int instructionCount;
+        private final long contentHash;
+
+        private Checkpoint(short[][] pages, int instructionCount, long contentHash) {
+            this.pages = pages;
+            this.instructionCount = instructionCount;
+            this.contentHash = contentHash;
+        }
+    }
+
     public Memoria(String binaryPath) throws ProcessorException {
-        this.memory = new short[MEMORY_SIZE];
+        this(binaryPath, DEFAULT_ADDRESS_BITS);
+    }
+
+    public Memoria(String binaryPath, int addressBits) throws ProcessorException {
+        this(addressBits);
         loadBinary(binaryPath);
     }
 
+    // imagem já carregada (ex.: execução em lote), sem passar pelo sistema de arquivos
+    public Memoria(short[] program) throws ProcessorException {
+        this(program, DEFAULT_ADDRESS_BITS);
+    }
+
+    public Memoria(short[] program, int addressBits) throws ProcessorException {
+        this(addressBits);
+        loadProgram(ShortBuffer.wrap(program));
+    }
+
+    // imagem binária little-endian (arquivo mapeado, ByteBuffer ou byte[] de um harness)
+    public Memoria(ByteBuffer image) throws ProcessorException {
+        this(image, DEFAULT_ADDRESS_BITS);
+    }
+
+    public Memoria(ByteBuffer image, int addressBits) throws ProcessorException {
+        this(addressBits);
+        try {
+            loadProgram(new Lib().as_instructions(image));
+        } catch (Exception e) {
+            throw new ProcessorException("Erro ao carregar binário: " + e.getMessage());
+        }
+    }
+
+    public Memoria(byte[] image) throws ProcessorException {
+        this(ByteBuffer.wrap(image));
+    }
+
+    public Memoria(byte[] image, int addressBits) throws ProcessorException {
+        this(ByteBuffer.wrap(image), addressBits);
+    }
+
+    // espaço de 2^addressBits palavras, sem nenhuma página alocada. O guest só alcança os
+    // endereços de dados 0 a 32767 (registrador de 16 bits com sinal), então o que passa de 16
+    // bits é capacidade só para o host (readData/writeData)
+    private Memoria(int addressBits) {
+        if (addressBits < DEFAULT_ADDRESS_BITS || addressBits > MAX_ADDRESS_BITS) {
+            throw new IllegalArgumentException("Bits de endereço devem estar entre " + DEFAULT_ADDRESS_BITS
+                    + " e " + MAX_ADDRESS_BITS + ": " + addressBits);
+        }
+        this.memorySize = 1 << addressBits;
+        this.pages = new short[memorySize >>> PAGE_SHIFT][];
+        this.pageGeneration = new int[pages.length];
+    }
+
     private void loadBinary(String binaryPath) throws ProcessorException {
         try {
             if (binaryPath == null || !binaryPath.toLowerCase().endsWith(".bin")) {
@@ -18,13 +103,7 @@ public class Memoria {
             }
 
             Lib loader = new Lib();
-            short[] loadedInstructions = loader.load_binary(binaryPath);
-            System.arraycopy(loadedInstructions, 0, memory, INSTRUCTION_START, loadedInstructions.length);
-            instructionCount = loadedInstructions.length;
-
-            for (int i = DATA_START; i < MEMORY_SIZE; i++) {
-                memory[i] = 0;
-            }
+            loadProgram(loader.as_instructions(loader.map_binary(binaryPath)));
 
             System.out.println("Binário carregado: " + instructionCount + " instruções");
 
@@ -33,26 +112,192 @@ public class Memoria {
         }
     }
 
-    public short readInstruction(int address) throws ProcessorException {
-        if (address < 0 || address >= instructionCount) {
-            throw new ProcessorException("Endereço de instrução inválido: " + address);
+    private void loadProgram(ShortBuffer program) throws ProcessorException {
+        int length = program.remaining();
+        if (length > memorySize - INSTRUCTION_START) {
+            throw new ProcessorException("Programa com " + length + " instruções não cabe na memória");
+        }
+        // a área de dados começa zerada, mesmo que o programa ultrapasse DATA_START, então só
+        // as palavras abaixo dela são copiadas
+        int end = Math.min(INSTRUCTION_START + length, DATA_START);
+        for (int address = INSTRUCTION_START; address < end; address += PAGE_WORDS) {
+            short[] page = new short[PAGE_WORDS];
+            program.get(page, 0, Math.min(PAGE_WORDS, end - address));
+            pages[address >>> PAGE_SHIFT] = page;
         }
-        return memory[INSTRUCTION_START + address];
+        instructionCount = length;
     }
 
-    public short readData(int address) throws ProcessorException {
-        int realAddress = DATA_START + address;
-        if (realAddress < DATA_START || realAddress >= MEMORY_SIZE) {
-            throw new ProcessorException("Endereço de dados inválido: " + address);
+    // acessos do caminho quente: um endereço inválido vira FAULT/false, sem exceção; a
+    // comparação sem sinal cobre negativos e o limite superior de uma vez
+    public int tryReadInstruction(int address) {
+        if (Integer.compareUnsigned(address, instructionCount) >= 0) {
+            return FAULT;
         }
-        return memory[realAddress];
+        return read(INSTRUCTION_START + address);
     }
 
-    public void writeData(int address, short value) throws ProcessorException {
+    public int tryReadData(int address) {
+        if (Integer.compareUnsigned(address, memorySize - DATA_START) >= 0) {
+            return FAULT;
+        }
+        return read(DATA_START + address);
+    }
+
+    private short read(int realAddress) {
+        short[] page = pages[realAddress >>> PAGE_SHIFT];
+        return page == null ? 0 : page[realAddress & PAGE_MASK];
+    }
+
+    // false quando o endereço é inválido; nada é escrito nesse caso
+    public boolean tryWriteData(int address, short value) {
+        if (Integer.compareUnsigned(address, memorySize - DATA_START) >= 0) {
+            return false;
+        }
         int realAddress = DATA_START + address;
-        if (realAddress < DATA_START || realAddress >= MEMORY_SIZE) {
-            throw new ProcessorException("Endereço de dados inválido para escrita: " + address);
+        int page = realAddress >>> PAGE_SHIFT;
+        if (pages[page] == null) {
+            pages[page] = new short[PAGE_WORDS];
+            pageGeneration[page] = generation;
+        } else if (pageGeneration[page] != generation) {
+            pages[page] = pages[page].clone();
+            pageGeneration[page] = generation;
         }
-        memory[realAddress] = value;
+        short[] words = pages[page];
+        if (contentHashEnabled) {
+            contentHash ^= mix(realAddress, words[realAddress & PAGE_MASK]) ^ mix(realAddress, value);
+        }
+        words[realAddress & PAGE_MASK] = value;
+        return true;
+    }
+
+    // operações atômicas das syscalls 14 a 16: devolvem o valor anterior ou FAULT. Com um único
+    // núcleo são leitura e escrita simples; MemoriaCompartilhada as torna atômicas de verdade
+    public int getAndAddData(int address, short delta) {
+        int old = tryReadData(address);
+        if (old != FAULT) {
+            tryWriteData(address, (short) (old + delta));
+        }
+        return old;
+    }
+
+    public int compareAndExchangeData(int address, short expected, short value) {
+        int old = tryReadData(address);
+        if (old == expected) {
+            tryWriteData(address, value);
+        }
+        return old;
+    }
+
+    public int getAndSetData(int address, short value) {
+        int old = tryReadData(address);
+        if (old != FAULT) {
+            tryWriteData(address, value);
+        }
+        return old;
+    }
+
+    // barreira da syscall 13; sem outros núcleos não há o que ordenar
+    public void fence() {
+    }
+
+    // captura o conteúdo atual sem copiar: as páginas passam a ser compartilhadas e só são
+    // copiadas na próxima escrita, então o custo fica proporcional às páginas sujas
+    public Checkpoint checkpoint() {
+        Checkpoint checkpoint = new Checkpoint(pages.clone(), instructionCount, contentHash);
+        generation++;
+        return checkpoint;
+    }
+
+    // o checkpoint continua válido e pode ser restaurado de novo, inclusive em outra Memoria
+    // carregada com o mesmo programa
+    public void restore(Checkpoint checkpoint) {
+        if (checkpoint.instructionCount != instructionCount) {
+            throw new IllegalArgumentException("Checkpoint de outro programa: " + checkpoint.instructionCount +
+                    " instruções, esperado " + instructionCount);
+        }
+        if (checkpoint.pages.length != pages.length) {
+            throw new IllegalArgumentException("Checkpoint de outro espaço de endereçamento: "
+                    + checkpoint.pages.length + " páginas, esperado " + pages.length);
+        }
+        pages = checkpoint.pages.clone();
+        contentHash = checkpoint.contentHash;
+        generation++;
+    }
+
+    // true se alguma página foi escrita (alocada ou copiada) depois do checkpoint
+    boolean writtenSince(Checkpoint checkpoint) {
+        for (int page = 0; page < pages.length; page++) {
+            if (pages[page] != checkpoint.pages[page]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // primeiro endereço de dados em que duas memórias com o mesmo programa diferem, ou -1; com
+    // checkpoints, só compara as páginas escritas em uma delas depois do respectivo checkpoint
+    int firstDifference(Memoria other, Checkpoint since, Checkpoint otherSince) {
+        int count = Math.min(pages.length, other.pages.length);
+        for (int page = 0; page < count; page++) {
+            short[] mine = pages[page];
+            short[] theirs = other.pages[page];
+            if (since != null && mine == since.pages[page] && theirs == otherSince.pages[page]) {
+                continue;
+            }
+            int index = mismatch(mine, theirs);
+            if (index >= 0) {
+                return (page << PAGE_SHIFT) + index - DATA_START;
+            }
+        }
+        return -1;
+    }
+
+    private static int mismatch(short[] a, short[] b) {
+        return a == b ? -1 : Arrays.mismatch(a != null ? a : ZERO_PAGE, b != null ? b : ZERO_PAGE);
+    }
+
+    public void enableContentHash() {
+        contentHashEnabled = true;
+    }
+
+    // só reflete escritas feitas depois de enableContentHash()
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    private static long mix(int address, short value) {
+        long x = ((long) address << 16) | (value & 0xFFFF);
+        x *= 0x9E3779B97F4A7C15L;
+        x ^= x >>> 32;
+        x *= 0xD6E8FEB86659FD93L;
+        return x ^ (x >>> 32);
+    }
+
+    public int getInstructionCount() {
+        return instructionCount;
+    }
+
+    public int getAddressBits() {
+        return Integer.numberOfTrailingZeros(memorySize);
+    }
+
+    public int getDataWords() {
+        return memorySize - DATA_START;
+    }
+
+    // páginas alocadas, inclusive as compartilhadas com checkpoints
+    public int getResidentPages() {
+        int resident = 0;
+        for (short[] page : pages) {
+            if (page != null) {
+                resident++;
+            }
+        }
+        return resident;
+    }
+
+    public int getTotalPages() {
+        return pages.length;
     }
 }
\ No newline at end of file
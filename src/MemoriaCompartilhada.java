@@ -0,0 +1,139 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Área de dados compartilhada pelos núcleos de SistemaMulticore, em páginas de PAGE_WORDS
+// palavras acessadas por VarHandle: não há travas, e núcleos em threads diferentes só disputam a
+// mesma linha de cache. Uma página é alocada na primeira escrita e instalada com CAS; se dois
+// núcleos a criam ao mesmo tempo, os dois usam a que entrou primeiro.
+//
+// Modelo de memória:
+//  - LOAD/STORE são acessos opaque: cada endereço é coerente (todos os núcleos veem as escritas
+//    nele na mesma ordem), mas escritas em endereços diferentes podem ser vistas fora de ordem
+//  - syscall 13 (fence) é uma barreira completa entre os acessos anteriores e os seguintes
+//  - as atômicas (syscalls 14 a 16) são sequencialmente consistentes entre si e com as barreiras
+// As instruções abaixo de DATA_START continuam numa Memoria própria e são só de leitura.
+public class MemoriaCompartilhada implements AcessoMemoria {
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(short[].class);
+    private static final int PAGE_MASK = Memoria.PAGE_WORDS - 1;
+
+    private final Memoria programa;
+    private final int dataWords;
+    private final AtomicReferenceArray<short[]> pages;
+
+    public MemoriaCompartilhada(short[] program, int addressBits) throws ProcessorException {
+        this(new Memoria(program, addressBits));
+    }
+
+    public MemoriaCompartilhada(ByteBuffer image, int addressBits) throws ProcessorException {
+        this(new Memoria(image, addressBits));
+    }
+
+    private MemoriaCompartilhada(Memoria programa) {
+        this.programa = programa;
+        this.dataWords = programa.getDataWords();
+        this.pages = new AtomicReferenceArray<>((dataWords + PAGE_MASK) >>> Memoria.PAGE_SHIFT);
+    }
+
+    // código executado acima de DATA_START é lido da área compartilhada, como os dados
+    @Override
+    public int tryReadInstruction(int address) {
+        if (address >= Memoria.DATA_START && address < getInstructionCount()) {
+            return tryReadData(address - Memoria.DATA_START);
+        }
+        return programa.tryReadInstruction(address);
+    }
+
+    @Override
+    public int tryReadData(int address) {
+        if (Integer.compareUnsigned(address, dataWords) >= 0) {
+            return Memoria.FAULT;
+        }
+        short[] page = pages.getAcquire(address >>> Memoria.PAGE_SHIFT);
+        return page == null ? 0 : (short) WORDS.getOpaque(page, address & PAGE_MASK);
+    }
+
+    @Override
+    public boolean tryWriteData(int address, short value) {
+        if (Integer.compareUnsigned(address, dataWords) >= 0) {
+            return false;
+        }
+        WORDS.setOpaque(page(address), address & PAGE_MASK, value);
+        return true;
+    }
+
+    @Override
+    public int getAndAddData(int address, short delta) {
+        if (Integer.compareUnsigned(address, dataWords) >= 0) {
+            return Memoria.FAULT;
+        }
+        return (short) WORDS.getAndAdd(page(address), address & PAGE_MASK, delta);
+    }
+
+    @Override
+    public int compareAndExchangeData(int address, short expected, short value) {
+        if (Integer.compareUnsigned(address, dataWords) >= 0) {
+            return Memoria.FAULT;
+        }
+        return (short) WORDS.compareAndExchange(page(address), address & PAGE_MASK, expected, value);
+    }
+
+    @Override
+    public int getAndSetData(int address, short value) {
+        if (Integer.compareUnsigned(address, dataWords) >= 0) {
+            return Memoria.FAULT;
+        }
+        return (short) WORDS.getAndSet(page(address), address & PAGE_MASK, value);
+    }
+
+    // página do endereço, alocada e instalada se ainda não existe
+    private short[] page(int address) {
+        int index = address >>> Memoria.PAGE_SHIFT;
+        short[] page = pages.getAcquire(index);
+        if (page != null) {
+            return page;
+        }
+        short[] created = new short[Memoria.PAGE_WORDS];
+        short[] installed = pages.compareAndExchange(index, null, created);
+        return installed != null ? installed : created;
+    }
+
+    @Override
+    public void fence() {
+        VarHandle.fullFence();
+    }
+
+    @Override
+    public int getInstructionCount() {
+        return programa.getInstructionCount();
+    }
+
+    @Override
+    public int getAddressBits() {
+        return programa.getAddressBits();
+    }
+
+    @Override
+    public int getDataWords() {
+        return dataWords;
+    }
+
+    // páginas do programa mais as páginas de dados já escritas; as de dados começam em
+    // DATA_START, então a soma pode passar do total por uma página
+    @Override
+    public int getResidentPages() {
+        int resident = programa.getResidentPages();
+        for (int page = 0; page < pages.length(); page++) {
+            if (pages.get(page) != null) {
+                resident++;
+            }
+        }
+        return Math.min(getTotalPages(), resident);
+    }
+
+    @Override
+    public int getTotalPages() {
+        return programa.getTotalPages();
+    }
+}
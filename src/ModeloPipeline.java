@@ -0,0 +1,159 @@
+import java.io.PrintStream;
+
+// Temporização de um pipeline clássico de 5 estágios (IF/ID/EX/MEM/WB), em ordem e de emissão
+// simples. Recebe as instruções na ordem em que o Processador as completa e calcula em que ciclo
+// cada uma entra em cada estágio, então o estado arquitetural continua sendo o do monociclo.
+//
+// Modelo:
+//  - forwarding EX/MEM -> EX e MEM/WB -> EX; o banco de registradores escreve na primeira metade
+//    do ciclo, então uma leitura em ID no mesmo ciclo do WB já vê o valor
+//  - LOAD seguido de uso em EX custa 1 bolha (load-use); o dado do STORE só é exigido em MEM
+//  - desvios condicionais resolvidos em EX: previsão errada descarta 2 instruções; sem
+//    PreditorDesvios a previsão é sempre "não tomado"
+//  - JUMP resolvido em ID: descarta 1 instrução
+//  - falha de cache congela o pipeline inteiro pelo tempo da falha (addMemoryStall)
+public class ModeloPipeline {
+    public static final int NO_REGISTER = -1;
+
+    private static final int REGISTERS = 8;
+    private static final int PIPELINE_FILL = 4;
+    private static final int JUMP_PENALTY = 1;   // instrução buscada em IF enquanto o JUMP está em ID
+    private static final int BRANCH_PENALTY = 2; // instruções em IF e ID quando o desvio resolve em EX
+
+    // ciclo em que o último resultado de cada registrador pode entrar em EX por forwarding,
+    // e o ciclo de EX de quem o produziu (para classificar o caminho usado)
+    private final long[] readyAt = new long[REGISTERS];
+    private final long[] producerEx = new long[REGISTERS];
+
+    // ciclo de entrada da instrução anterior em cada estágio
+    private long lastId = -1;
+    private long lastEx = -1;
+    private long nextFetch = 0; // redirecionamento por desvio tomado/salto
+    private long lastWb = -1;
+
+    private long instructions = 0;
+    private long loadUseStalls = 0;
+    private long memoryStalls = 0;
+    private long branchFlushCycles = 0;
+    private long jumpFlushCycles = 0;
+    private long flushedBranches = 0;
+    private long jumps = 0;
+    private long forwardExMem = 0;
+    private long forwardMemWb = 0;
+    private long forwardToMem = 0;
+
+    public ModeloPipeline() {
+        for (int r = 0; r < REGISTERS; r++) {
+            readyAt[r] = Long.MIN_VALUE;
+            producerEx[r] = Long.MIN_VALUE;
+        }
+    }
+
+    // src1/src2 são lidos em EX, storeData só em MEM; dest é NO_REGISTER quando não há escrita
+    void issue(int src1, int src2, int storeData, int dest, boolean load, boolean jump, boolean branchFlush) {
+        instructions++;
+
+        // cada instrução só entra num estágio quando a anterior sai dele
+        long ifCycle = Math.max(lastId, nextFetch);
+        long idCycle = Math.max(ifCycle + 1, lastEx);
+
+        long exCycle = idCycle + 1;
+        long operandsReady = Math.max(ready(src1), ready(src2));
+        if (operandsReady > exCycle) {
+            loadUseStalls += operandsReady - exCycle; // só LOAD chega depois de ID + 1
+            exCycle = operandsReady;
+        }
+        countForward(src1, exCycle);
+        if (src2 != src1) {
+            countForward(src2, exCycle);
+        }
+        long memCycle = exCycle + 1;
+        if (storeData != NO_REGISTER && producerEx[storeData] != Long.MIN_VALUE
+                && memCycle == producerEx[storeData] + 2) {
+            forwardToMem++;
+        }
+        lastWb = memCycle + 1;
+
+        if (dest != NO_REGISTER) {
+            readyAt[dest] = load ? exCycle + 2 : exCycle + 1;
+            producerEx[dest] = exCycle;
+        }
+
+        if (jump) {
+            jumps++;
+            jumpFlushCycles += JUMP_PENALTY;
+            nextFetch = idCycle + 1;
+        } else if (branchFlush) {
+            flushedBranches++;
+            branchFlushCycles += BRANCH_PENALTY;
+            nextFetch = exCycle + 1;
+        }
+
+        lastId = idCycle;
+        lastEx = exCycle;
+    }
+
+    void addMemoryStall(int cycles) {
+        memoryStalls += cycles;
+    }
+
+    private long ready(int register) {
+        return register == NO_REGISTER ? Long.MIN_VALUE : readyAt[register];
+    }
+
+    private void countForward(int register, long exCycle) {
+        if (register == NO_REGISTER || producerEx[register] == Long.MIN_VALUE) {
+            return;
+        }
+        long distance = exCycle - producerEx[register];
+        if (distance == 1) {
+            forwardExMem++;
+        } else if (distance == 2) {
+            forwardMemWb++;
+        }
+    }
+
+    // ciclos até o WB da última instrução, com o preenchimento inicial do pipeline
+    public long getCycles() { return lastWb + 1 + memoryStalls; }
+    public long getInstructions() { return instructions; }
+    public long getLoadUseStalls() { return loadUseStalls; }
+    public long getMemoryStalls() { return memoryStalls; }
+    public long getBranchFlushCycles() { return branchFlushCycles; }
+    public long getJumpFlushCycles() { return jumpFlushCycles; }
+    public long getFlushedBranches() { return flushedBranches; }
+    public long getJumps() { return jumps; }
+    public long getForwardExMem() { return forwardExMem; }
+    public long getForwardMemWb() { return forwardMemWb; }
+    public long getForwardToMem() { return forwardToMem; }
+
+    public double getCpi() {
+        return instructions == 0 ? 0 : (double) getCycles() / instructions;
+    }
+
+    public void printSummary(PrintStream out) {
+        out.println("\n=== Pipeline de 5 estágios ===");
+        out.println("Instruções: " + instructions);
+        out.println("Ciclos: " + getCycles());
+        out.printf("CPI: %.3f%n", getCpi());
+        out.println("Bolhas:");
+        out.println("  load-use:            " + loadUseStalls);
+        out.println("  desvios descartados: " + branchFlushCycles + " (" + flushedBranches + " desvios)");
+        out.println("  saltos:              " + jumpFlushCycles + " (" + jumps + " saltos)");
+        out.println("  falhas de cache:     " + memoryStalls);
+        out.println("  enchimento:          " + (instructions == 0 ? 0 : PIPELINE_FILL));
+        out.println("Forwarding:");
+        out.println("  EX/MEM -> EX:        " + forwardExMem);
+        out.println("  MEM/WB -> EX:        " + forwardMemWb);
+        out.println("  MEM/WB -> MEM:       " + forwardToMem);
+    }
+
+    public static String reportHeader() {
+        return "arquivo;instrucoes;ciclos;cpi;bolhas_load_use;bolhas_desvio;bolhas_salto;bolhas_memoria;fwd_ex_mem;fwd_mem_wb;fwd_mem";
+    }
+
+    public String toReportLine(String name) {
+        return name + ';' + instructions + ';' + getCycles() + ';' + String.format("%.3f", getCpi()) + ';'
+                + loadUseStalls + ';' + branchFlushCycles + ';' + jumpFlushCycles + ';' + memoryStalls + ';'
+                + forwardExMem + ';' + forwardMemWb + ';' + forwardToMem;
+    }
+}
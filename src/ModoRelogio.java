@@ -0,0 +1,5 @@
+public enum ModoRelogio {
+    REAL,     // sleep bloqueia a thread e time lê o relógio do host
+    VIRTUAL,  // tempo derivado dos ciclos; sleep só avança o relógio virtual
+    AGENDADO  // tempo real, mas o sleep suspende a execução em vez de bloquear a thread
+}
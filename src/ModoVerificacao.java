@@ -0,0 +1,4 @@
+public enum ModoVerificacao {
+    CICLO, // compara depois de cada unidade do candidato (ciclo, superinstrução ou bloco)
+    BLOCO  // compara só quando o candidato chega ao início de um bloco básico ou para
+}
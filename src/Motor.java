@@ -0,0 +1,4 @@
+public enum Motor {
+    INTERPRETADOR, // switch por instrução (fetch/decode/execute a cada ciclo)
+    BLOCOS         // blocos básicos traduzidos para cadeias de operações pré-ligadas
+}
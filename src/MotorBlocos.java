@@ -0,0 +1,232 @@
+import java.util.Arrays;
+
+public class MotorBlocos {
+    // execuções de um bloco antes de compilá-lo em bytecode; abaixo disso a classe oculta custa
+    // mais que as operações que ela economizaria
+    static final int COMPILE_THRESHOLD = 1000;
+    // ciclos por chamada de um laço compilado, para o runLoop ainda ver o prazo e o limite
+    private static final int MAX_LOOP_CYCLES = 4096;
+
+    interface Operacao {
+        // false quando a operação falharia; nesse caso nada foi alterado
+        boolean execute(Registrador registrador, AcessoMemoria memoria);
+    }
+
+    // corpo de um bloco compilado, dando até iterations voltas quando ele é um laço; retorna
+    // quantas instruções foram concluídas
+    interface Codigo {
+        int run(short[] registers, AcessoMemoria memoria, int iterations);
+    }
+
+    static final class Bloco {
+        private final int start;
+        private final int end;
+        // JUMP_COND que fecha o bloco voltando para start, ou -1; só o bloco compilado o inclui
+        private final int loopJump;
+        private final int loopRd;
+        private final Operacao[] ops;
+        // instruções concluídas depois de cada operação (uma superinstrução conta duas)
+        private final int[] completed;
+        private int length;
+        private int executions;
+        private Codigo codigo;
+        private boolean loop;
+
+        Bloco(int start, int end, int loopJump, int loopRd, Operacao[] ops, int[] completed) {
+            this.start = start;
+            this.end = end;
+            this.loopJump = loopJump;
+            this.loopRd = loopRd;
+            this.ops = ops;
+            this.completed = completed;
+            this.length = completed[ops.length];
+        }
+
+        // instruções de uma passada; num laço compilado, uma volta com o JUMP_COND
+        int length() {
+            return length;
+        }
+
+        // retorna quantas instruções foram concluídas, no máximo budget (>= length()). Um laço
+        // compilado dá voltas enquanto o desvio é tomado e cabem no budget
+        int run(Registrador registrador, AcessoMemoria memoria, long budget) {
+            if (codigo != null) {
+                return codigo.run(registrador.array(), memoria, (int) (Math.min(budget, MAX_LOOP_CYCLES) / length));
+            }
+            int executed = 0;
+            while (executed < ops.length && ops[executed].execute(registrador, memoria)) {
+                executed++;
+            }
+            return completed[executed];
+        }
+
+        // false quando a instrução seguinte falharia: ela não alterou o estado e deve ser
+        // refeita pelo interpretador
+        boolean isComplete(int executed) {
+            return loop ? executed > 0 && executed % length == 0 : executed == length;
+        }
+
+        // PC depois de run ter concluído executed instruções; no fim de uma volta, R[rd] diz se
+        // o JUMP_COND voltou para start
+        int nextPc(Registrador registrador, int executed) {
+            if (!loop) {
+                return start + executed;
+            }
+            if (!isComplete(executed)) {
+                return start + executed % length;
+            }
+            return registrador.get(loopRd) == 1 ? start : loopJump + 1;
+        }
+
+        private void compile(ProgramaDecodificado programa) {
+            codigo = CompiladorBlocos.compile(programa, start, end, loopJump);
+            if (codigo != null && loopJump >= 0) {
+                loop = true;
+                length = loopJump + 1 - start;
+            }
+        }
+    }
+
+    private final ProgramaDecodificado programa;
+    private final AnaliseBlocos analise;
+    private final FusaoInstrucoes fusao;
+    private final boolean loops;
+    private final Bloco[] blocos;
+
+    public MotorBlocos(ProgramaDecodificado programa) {
+        this(programa, new AnaliseBlocos(programa), null, true);
+    }
+
+    // com fusao, os pares MOV + ADD/LOAD/STORE viram uma operação só e o bloco para antes de um
+    // CMP que forma par com o JUMP_COND seguinte, para o par ser executado fundido. Sem loops,
+    // nenhum laço é compilado com o desvio (a detecção de laço precisa ver cada desvio tomado)
+    public MotorBlocos(ProgramaDecodificado programa, AnaliseBlocos analise, FusaoInstrucoes fusao, boolean loops) {
+        this.programa = programa;
+        this.analise = analise;
+        this.fusao = fusao;
+        this.loops = loops;
+        this.blocos = new Bloco[programa.size()];
+    }
+
+    // bloco que começa em pc, traduzido na primeira visita e compilado na visita
+    // COMPILE_THRESHOLD; null quando pc está fora do programa pré-decodificado ou aponta direto
+    // para um terminador
+    Bloco blockAt(int pc) {
+        if (!programa.contains(pc) || analise.isTerminator(pc)) {
+            return null;
+        }
+        Bloco bloco = blocos[pc];
+        if (bloco == null) {
+            int end = analise.getBodyEnd(pc);
+            int loopJump = loops && isLoopJump(end, pc) ? end : -1;
+            if (fusao != null && end > pc && isCompareJump(fusao.kindAt(end - 1))) {
+                end--;
+            }
+            if (end == pc) {
+                return null; // só o CMP do par: fica com o interpretador
+            }
+            bloco = translate(pc, end, loopJump);
+            blocos[pc] = bloco;
+        } else if (bloco.executions < COMPILE_THRESHOLD && ++bloco.executions == COMPILE_THRESHOLD) {
+            bloco.compile(programa);
+        }
+        return bloco;
+    }
+
+    // JUMP_COND em pc que volta para start
+    private boolean isLoopJump(int pc, int start) {
+        return programa.contains(pc) && !programa.isFormatR(pc) && programa.getOpcode(pc) == 1
+                && programa.getImmediateUnsigned(pc) == start;
+    }
+
+    private static boolean isCompareJump(byte kind) {
+        return kind == FusaoInstrucoes.CMP_EQ_JUMP || kind == FusaoInstrucoes.CMP_NEQ_JUMP;
+    }
+
+    private Bloco translate(int start, int end, int loopJump) {
+        Operacao[] ops = new Operacao[end - start];
+        int[] completed = new int[end - start + 1];
+        int count = 0;
+        for (int pc = start; pc < end; pc++) {
+            byte kind = fusao == null ? FusaoInstrucoes.NONE : fusao.kindAt(pc);
+            if (kind >= FusaoInstrucoes.MOV_ADD && pc + 1 < end) {
+                ops[count] = fusao.pairAt(pc);
+                pc++;
+            } else {
+                ops[count] = translateInstruction(pc);
+            }
+            count++;
+            completed[count] = pc + 1 - start;
+        }
+        if (count < ops.length) {
+            ops = Arrays.copyOf(ops, count);
+            completed = Arrays.copyOf(completed, count + 1);
+        }
+        int loopRd = loopJump >= 0 ? programa.getRd(loopJump) : 0;
+        return new Bloco(start, end, loopJump, loopRd, ops, completed);
+    }
+
+    private Operacao translateInstruction(int pc) {
+        int rd = programa.getRd(pc);
+        int rs1 = programa.getRs1(pc);
+        int rs2 = programa.getRs2(pc);
+
+        if (!programa.isFormatR(pc)) { // MOV
+            short imediato = (short) programa.getImmediateUnsigned(pc);
+            return (r, m) -> {
+                r.set(rd, imediato);
+                return true;
+            };
+        }
+
+        switch (programa.getOpcode(pc)) {
+            case 0:
+                return (r, m) -> {
+                    r.set(rd, (short) (r.get(rs1) + r.get(rs2)));
+                    return true;
+                };
+            case 1:
+                return (r, m) -> {
+                    r.set(rd, (short) (r.get(rs1) - r.get(rs2)));
+                    return true;
+                };
+            case 2:
+                return (r, m) -> {
+                    r.set(rd, (short) (r.get(rs1) * r.get(rs2)));
+                    return true;
+                };
+            case 3:
+                return (r, m) -> {
+                    short divisor = r.get(rs2);
+                    if (divisor == 0) {
+                        return false;
+                    }
+                    r.set(rd, (short) (r.get(rs1) / divisor));
+                    return true;
+                };
+            case 4:
+                return (r, m) -> {
+                    r.set(rd, (short) (r.get(rs1) == r.get(rs2) ? 1 : 0));
+                    return true;
+                };
+            case 5:
+                return (r, m) -> {
+                    r.set(rd, (short) (r.get(rs1) != r.get(rs2) ? 1 : 0));
+                    return true;
+                };
+            case 15:
+                return (r, m) -> {
+                    int value = m.tryReadData(r.get(rs1));
+                    if (value == Memoria.FAULT) {
+                        return false;
+                    }
+                    r.set(rd, (short) value);
+                    return true;
+                };
+            case 16:
+                return (r, m) -> m.tryWriteData(r.get(rs1), r.get(rs2));
+            default:
+                throw new IllegalStateException("Instrução não traduzível no PC " + pc);
+        }
+    }
+}
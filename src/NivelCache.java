@@ -0,0 +1,136 @@
+import java.io.PrintStream;
+
+// Um nível de cache associativo por conjunto. Tags, estado e carimbos ficam em arrays primitivos
+// indexados por conjunto * vias + via; access() não aloca.
+public class NivelCache {
+    private static final byte VALID = 1;
+    private static final byte DIRTY = 2;
+
+    private final String name;
+    private final NivelCache next;    // null = memória principal
+    private final int memoryLatency;
+    private final int hitLatency;
+    private final int lineShift;
+    private final int setShift;
+    private final int setMask;
+    private final int ways;
+    private final PoliticaSubstituicao replacement;
+    private final boolean writeBack;
+
+    private final int[] tags;
+    private final byte[] state;
+    private final long[] stamps; // último uso (LRU) ou entrada (FIFO)
+    private long clock = 0;
+    private int random = 0x2545F491;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long writebacks;
+
+    public NivelCache(String name, ConfiguracaoCache.Nivel config, NivelCache next, int memoryLatency) {
+        int lines = config.getSizeWords() / config.getLineWords();
+        if (lines < config.getWays()) {
+            throw new IllegalArgumentException("Cache " + name + " tem menos linhas que vias: " + lines);
+        }
+        int sets = lines / config.getWays();
+        this.name = name;
+        this.next = next;
+        this.memoryLatency = memoryLatency;
+        this.hitLatency = config.getHitLatency();
+        this.lineShift = Integer.numberOfTrailingZeros(config.getLineWords());
+        this.setShift = Integer.numberOfTrailingZeros(sets);
+        this.setMask = sets - 1;
+        this.ways = config.getWays();
+        this.replacement = config.getReplacement();
+        this.writeBack = config.isWriteBack();
+        this.tags = new int[lines];
+        this.state = new byte[lines];
+        this.stamps = new long[lines];
+    }
+
+    // latência em ciclos extras do acesso à palavra address, incluindo os níveis abaixo
+    public int access(int address, boolean write) {
+        int line = address >>> lineShift;
+        int base = (line & setMask) * ways;
+        int tag = line >>> setShift;
+
+        for (int slot = base; slot < base + ways; slot++) {
+            if ((state[slot] & VALID) != 0 && tags[slot] == tag) {
+                hits++;
+                if (replacement == PoliticaSubstituicao.LRU) {
+                    stamps[slot] = ++clock;
+                }
+                if (!write) {
+                    return hitLatency;
+                }
+                if (writeBack) {
+                    state[slot] |= DIRTY;
+                    return hitLatency;
+                }
+                return hitLatency + below(address, true);
+            }
+        }
+
+        misses++;
+        if (write && !writeBack) {
+            return hitLatency + below(address, true); // write-through sem alocação
+        }
+
+        int slot = victim(base);
+        int latency = hitLatency;
+        if ((state[slot] & VALID) != 0) {
+            evictions++;
+            if ((state[slot] & DIRTY) != 0) {
+                writebacks++;
+                int victimLine = (tags[slot] << setShift) | (line & setMask);
+                latency += below(victimLine << lineShift, true);
+            }
+        }
+        latency += below(address, false);
+
+        tags[slot] = tag;
+        state[slot] = write ? (byte) (VALID | DIRTY) : VALID;
+        stamps[slot] = ++clock;
+        return latency;
+    }
+
+    private int below(int address, boolean write) {
+        return next == null ? memoryLatency : next.access(address, write);
+    }
+
+    private int victim(int base) {
+        int chosen = base;
+        for (int slot = base; slot < base + ways; slot++) {
+            if ((state[slot] & VALID) == 0) {
+                return slot;
+            }
+            if (stamps[slot] < stamps[chosen]) {
+                chosen = slot;
+            }
+        }
+        if (replacement == PoliticaSubstituicao.ALEATORIA) {
+            random ^= random << 13;
+            random ^= random >>> 17;
+            random ^= random << 5;
+            return base + (random & (ways - 1));
+        }
+        return chosen; // LRU e FIFO só diferem em quando o carimbo é atualizado
+    }
+
+    public String getName() { return name; }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getEvictions() { return evictions; }
+    public long getWritebacks() { return writebacks; }
+
+    public double getMissRate() {
+        long accesses = hits + misses;
+        return accesses == 0 ? 0 : (double) misses / accesses;
+    }
+
+    void printSummary(PrintStream out) {
+        out.printf("  %-4s acertos %d, falhas %d (%.2f%%), expulsões %d, write-backs %d%n",
+                name, hits, misses, 100.0 * getMissRate(), evictions, writebacks);
+    }
+}
@@ -0,0 +1,24 @@
+// Observa a execução ciclo a ciclo (Processador.addListener), para depuradores, IDEs e
+// corretores. Os ciclos são numerados como Processador.getCycleCount() ao fim de cada um; os
+// métodos são chamados na thread que executa o Processador, depois do ciclo, e só para o que o
+// ciclo de fato fez (uma falha desviada para o tratador não escreve registrador nem desvia).
+public interface OuvinteExecucao {
+    // instrução buscada em pc; não é chamado quando a busca falha
+    default void onFetch(long cycle, int pc, short instruction) { }
+
+    default void onRegisterWrite(long cycle, int index, short oldValue, short newValue) { }
+
+    // LOAD/STORE e atômicas (syscalls 14 a 16) bem-sucedidos; value é o valor lido ou escrito
+    default void onMemoryAccess(long cycle, int address, short value, boolean write) { }
+
+    // JUMP (sempre tomado) e JUMP_COND
+    default void onBranch(long cycle, int pc, int target, boolean taken) { }
+
+    default void onSyscall(long cycle, int pc, int service) { }
+
+    // a execução pausou (StatusExecucao.PAUSADO) antes de executar a instrução em pc
+    default void onBreakpoint(long cycle, int pc) { }
+
+    // a execução pausou depois do acesso ao endereço vigiado
+    default void onWatchpoint(long cycle, int pc, int address, short value, boolean write) { }
+}
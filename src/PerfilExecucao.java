@@ -0,0 +1,239 @@
+import java.io.PrintStream;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Contadores de execução do programa guest, todos em arrays primitivos indexados por PC/opcode.
+public class PerfilExecucao {
+    public static final int HISTOGRAM_BUCKET_WORDS = 256;
+    private static final int HISTOGRAM_BUCKETS = 65536 / HISTOGRAM_BUCKET_WORDS;
+    private static final int SYSCALL_SLOTS = 64; // o último slot junta os serviços fora da faixa
+    private static final int TOP_PCS = 10;
+
+    private final long[] rFormatCounts = new long[64];
+    private final long[] iFormatCounts = new long[4];
+    private final long[] pcCounts;
+    private final long[] branchTaken;
+    private final long[] branchNotTaken;
+    private final long[] loadHistogram = new long[HISTOGRAM_BUCKETS];
+    private final long[] storeHistogram = new long[HISTOGRAM_BUCKETS];
+    private final long[] syscallCounts = new long[SYSCALL_SLOTS];
+
+    @Name("simulador.ExecucaoGuest")
+    @Label("Execução do programa guest")
+    @Category("Simulador")
+    static final class ExecucaoEvent extends Event {
+        @Label("Status")
+        String status;
+        @Label("Ciclos")
+        long cycles;
+        @Label("PC final")
+        int finalPc;
+        @Label("Desvios condicionais")
+        long conditionalBranches;
+        @Label("Desvios tomados")
+        long takenBranches;
+        @Label("Acessos à memória")
+        long memoryAccesses;
+        @Label("Syscalls")
+        long syscalls;
+    }
+
+    @Name("simulador.OpcodeGuest")
+    @Label("Contagem por opcode")
+    @Category("Simulador")
+    static final class OpcodeEvent extends Event {
+        @Label("Mnemônico")
+        String mnemonic;
+        @Label("Execuções")
+        long count;
+    }
+
+    @Name("simulador.PcQuente")
+    @Label("PC mais executado")
+    @Category("Simulador")
+    static final class PcEvent extends Event {
+        @Label("PC")
+        int pc;
+        @Label("Execuções")
+        long count;
+    }
+
+    public PerfilExecucao(int programSize) {
+        this.pcCounts = new long[programSize];
+        this.branchTaken = new long[programSize];
+        this.branchNotTaken = new long[programSize];
+    }
+
+    void recordInstruction(int pc, boolean formatR, int opcode) {
+        if (formatR) {
+            rFormatCounts[opcode]++;
+        } else {
+            iFormatCounts[opcode]++;
+        }
+        pcCounts[pc]++;
+    }
+
+    void recordBranch(int pc, boolean taken) {
+        if (taken) {
+            branchTaken[pc]++;
+        } else {
+            branchNotTaken[pc]++;
+        }
+    }
+
+    void recordMemoryAccess(int address, boolean write) {
+        if (write) {
+            storeHistogram[address / HISTOGRAM_BUCKET_WORDS]++;
+        } else {
+            loadHistogram[address / HISTOGRAM_BUCKET_WORDS]++;
+        }
+    }
+
+    void recordSyscall(int service) {
+        syscallCounts[service >= 0 && service < SYSCALL_SLOTS ? service : SYSCALL_SLOTS - 1]++;
+    }
+
+    public long getRFormatCount(int opcode) { return rFormatCounts[opcode]; }
+    public long getIFormatCount(int opcode) { return iFormatCounts[opcode]; }
+    public int getProgramSize() { return pcCounts.length; }
+    public long getPcCount(int pc) { return pcCounts[pc]; }
+    public long getBranchTaken(int pc) { return branchTaken[pc]; }
+    public long getBranchNotTaken(int pc) { return branchNotTaken[pc]; }
+    public long[] getLoadHistogram() { return loadHistogram.clone(); }
+    public long[] getStoreHistogram() { return storeHistogram.clone(); }
+    public long getSyscallCount(int service) { return syscallCounts[service]; }
+
+    public long getInstructionCount() {
+        return sum(rFormatCounts) + sum(iFormatCounts);
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    // PCs ordenados por execução, no máximo limit entradas
+    public int[] hottestPcs(int limit) {
+        int[] top = new int[Math.min(limit, pcCounts.length)];
+        int found = 0;
+        for (int pc = 0; pc < pcCounts.length; pc++) {
+            if (pcCounts[pc] == 0) {
+                continue;
+            }
+            if (found < top.length) {
+                top[found++] = pc;
+            } else if (pcCounts[pc] > pcCounts[top[found - 1]]) {
+                top[found - 1] = pc;
+            } else {
+                continue;
+            }
+            for (int i = found - 1; i > 0 && pcCounts[top[i - 1]] < pcCounts[top[i]]; i--) {
+                int tmp = top[i - 1];
+                top[i - 1] = top[i];
+                top[i] = tmp;
+            }
+        }
+        int[] result = new int[found];
+        System.arraycopy(top, 0, result, 0, found);
+        return result;
+    }
+
+    public void commitEvents(StatusExecucao status, long cycles, int finalPc) {
+        ExecucaoEvent execucao = new ExecucaoEvent();
+        if (execucao.isEnabled()) {
+            execucao.status = status.name();
+            execucao.cycles = cycles;
+            execucao.finalPc = finalPc;
+            execucao.conditionalBranches = sum(branchTaken) + sum(branchNotTaken);
+            execucao.takenBranches = sum(branchTaken);
+            execucao.memoryAccesses = sum(loadHistogram) + sum(storeHistogram);
+            execucao.syscalls = sum(syscallCounts);
+            execucao.commit();
+        }
+
+        for (int opcode = 0; opcode < rFormatCounts.length; opcode++) {
+            commitOpcode(true, opcode, rFormatCounts[opcode]);
+        }
+        for (int opcode = 0; opcode < iFormatCounts.length; opcode++) {
+            commitOpcode(false, opcode, iFormatCounts[opcode]);
+        }
+
+        for (int pc : hottestPcs(TOP_PCS)) {
+            PcEvent event = new PcEvent();
+            if (event.isEnabled()) {
+                event.pc = pc;
+                event.count = pcCounts[pc];
+                event.commit();
+            }
+        }
+    }
+
+    private static void commitOpcode(boolean formatR, int opcode, long count) {
+        if (count == 0) {
+            return;
+        }
+        OpcodeEvent event = new OpcodeEvent();
+        if (event.isEnabled()) {
+            event.mnemonic = Instrucao.mnemonic(formatR, opcode);
+            event.count = count;
+            event.commit();
+        }
+    }
+
+    public void printSummary(PrintStream out) {
+        long total = getInstructionCount();
+        out.println("\n=== Perfil de Execução ===");
+        out.println("Instruções executadas: " + total);
+
+        out.println("Por opcode:");
+        for (int opcode = 0; opcode < rFormatCounts.length; opcode++) {
+            printCount(out, Instrucao.mnemonic(true, opcode), rFormatCounts[opcode], total);
+        }
+        for (int opcode = 0; opcode < iFormatCounts.length; opcode++) {
+            printCount(out, Instrucao.mnemonic(false, opcode), iFormatCounts[opcode], total);
+        }
+
+        out.println("PCs mais executados:");
+        for (int pc : hottestPcs(TOP_PCS)) {
+            printCount(out, "PC " + pc, pcCounts[pc], total);
+        }
+
+        out.println("Desvios condicionais (JUMP_COND):");
+        for (int pc = 0; pc < branchTaken.length; pc++) {
+            long executed = branchTaken[pc] + branchNotTaken[pc];
+            if (executed > 0) {
+                out.printf("  PC %-6d tomados %d, não tomados %d (%.1f%% tomados)%n",
+                        pc, branchTaken[pc], branchNotTaken[pc], 100.0 * branchTaken[pc] / executed);
+            }
+        }
+
+        out.println("Acessos à memória de dados (faixas de " + HISTOGRAM_BUCKET_WORDS + " palavras):");
+        for (int bucket = 0; bucket < HISTOGRAM_BUCKETS; bucket++) {
+            if (loadHistogram[bucket] + storeHistogram[bucket] > 0) {
+                int start = bucket * HISTOGRAM_BUCKET_WORDS;
+                out.printf("  [%d-%d] LOAD %d, STORE %d%n", start, start + HISTOGRAM_BUCKET_WORDS - 1,
+                        loadHistogram[bucket], storeHistogram[bucket]);
+            }
+        }
+
+        out.println("Syscalls:");
+        for (int service = 0; service < SYSCALL_SLOTS; service++) {
+            if (syscallCounts[service] > 0) {
+                String label = service == SYSCALL_SLOTS - 1 ? "outros serviços" : "serviço " + service;
+                out.printf("  %-16s %d%n", label, syscallCounts[service]);
+            }
+        }
+    }
+
+    private static void printCount(PrintStream out, String label, long count, long total) {
+        if (count > 0) {
+            out.printf("  %-12s %10d (%.1f%%)%n", label, count, 100.0 * count / total);
+        }
+    }
+}
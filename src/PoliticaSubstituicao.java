@@ -0,0 +1,5 @@
+public enum PoliticaSubstituicao {
+    LRU,      // menos recentemente usada
+    FIFO,     // mais antiga a entrar no conjunto
+    ALEATORIA // xorshift com semente fixa, para execuções reproduzíveis
+}
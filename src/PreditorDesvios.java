@@ -0,0 +1,151 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+
+// Previsão de direção dos JUMP_COND. As tabelas são arrays primitivos e record() não aloca;
+// as estatísticas são guardadas por PC, como no PerfilExecucao.
+public class PreditorDesvios {
+    public static final int DEFAULT_ENTRIES = 1024;
+    public static final int DEFAULT_BTB_ENTRIES = 16;
+    public static final int HISTORY_BITS = 8;
+    // desvio resolvido em EX, como no ModeloPipeline: IF e ID são descartados
+    public static final int MISPREDICT_PENALTY = 2;
+
+    private final TipoPreditor tipo;
+    private final int mask;
+    private final byte[] counters;
+    private final int[] btbTags; // só no BTB: PC dono da entrada, -1 = vazia
+    private int history = 0;
+
+    private final long[] predictions;
+    private final long[] mispredictions;
+    private long totalPredictions = 0;
+    private long totalMispredictions = 0;
+
+    public PreditorDesvios(TipoPreditor tipo, int entries, int programSize) {
+        if (entries <= 0 || Integer.bitCount(entries) != 1) {
+            throw new IllegalArgumentException("Entradas do preditor devem ser potência de 2: " + entries);
+        }
+        this.tipo = tipo;
+        this.mask = entries - 1;
+        this.counters = new byte[entries];
+        if (tipo == TipoPreditor.DOIS_BITS || tipo == TipoPreditor.GSHARE) {
+            Arrays.fill(counters, (byte) 1); // fracamente não tomado
+        }
+        if (tipo == TipoPreditor.BTB) {
+            this.btbTags = new int[entries];
+            Arrays.fill(btbTags, -1);
+        } else {
+            this.btbTags = null;
+        }
+        this.predictions = new long[programSize];
+        this.mispredictions = new long[programSize];
+    }
+
+    public static int defaultEntries(TipoPreditor tipo) {
+        return tipo == TipoPreditor.BTB ? DEFAULT_BTB_ENTRIES : DEFAULT_ENTRIES;
+    }
+
+    // prevê, compara com o resultado real e treina; true quando a previsão errou
+    boolean record(int pc, boolean taken) {
+        boolean predicted = predict(pc);
+        update(pc, taken);
+
+        boolean wrong = predicted != taken;
+        totalPredictions++;
+        if (wrong) {
+            totalMispredictions++;
+        }
+        if (pc >= 0 && pc < predictions.length) {
+            predictions[pc]++;
+            if (wrong) {
+                mispredictions[pc]++;
+            }
+        }
+        return wrong;
+    }
+
+    private boolean predict(int pc) {
+        switch (tipo) {
+            case UM_BIT:
+                return counters[pc & mask] != 0;
+            case DOIS_BITS:
+                return counters[pc & mask] >= 2;
+            case GSHARE:
+                return counters[(pc ^ history) & mask] >= 2;
+            case BTB:
+                return btbTags[pc & mask] == pc && counters[pc & mask] >= 2;
+            default:
+                return false;
+        }
+    }
+
+    private void update(int pc, boolean taken) {
+        switch (tipo) {
+            case UM_BIT:
+                counters[pc & mask] = (byte) (taken ? 1 : 0);
+                break;
+            case DOIS_BITS:
+                train(pc & mask, taken);
+                break;
+            case GSHARE:
+                train((pc ^ history) & mask, taken);
+                history = ((history << 1) | (taken ? 1 : 0)) & ((1 << HISTORY_BITS) - 1);
+                break;
+            case BTB:
+                int slot = pc & mask;
+                if (btbTags[slot] == pc) {
+                    train(slot, taken);
+                } else if (taken) {
+                    btbTags[slot] = pc; // só desvios tomados ganham entrada
+                    counters[slot] = 2;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void train(int index, boolean taken) {
+        if (taken) {
+            if (counters[index] < 3) {
+                counters[index]++;
+            }
+        } else if (counters[index] > 0) {
+            counters[index]--;
+        }
+    }
+
+    public TipoPreditor getTipo() { return tipo; }
+    public long getPredictions() { return totalPredictions; }
+    public long getMispredictions() { return totalMispredictions; }
+    public long getPredictions(int pc) { return predictions[pc]; }
+    public long getMispredictions(int pc) { return mispredictions[pc]; }
+    public long getPenaltyCycles() { return totalMispredictions * MISPREDICT_PENALTY; }
+
+    public double getAccuracy() {
+        return totalPredictions == 0 ? 1.0 : 1.0 - (double) totalMispredictions / totalPredictions;
+    }
+
+    public void printSummary(PrintStream out) {
+        out.println("\n=== Previsão de Desvios (" + tipo + ") ===");
+        out.printf("Previsões: %d, erros: %d, acerto %.2f%%%n",
+                totalPredictions, totalMispredictions, 100.0 * getAccuracy());
+        out.println("Penalidade de erros: " + getPenaltyCycles() + " ciclos");
+        out.println("Por desvio:");
+        for (int pc = 0; pc < predictions.length; pc++) {
+            if (predictions[pc] > 0) {
+                out.printf("  PC %-6d previsões %d, erros %d (%.2f%% acerto)%n", pc, predictions[pc],
+                        mispredictions[pc], 100.0 - 100.0 * mispredictions[pc] / predictions[pc]);
+            }
+        }
+    }
+
+    public static String reportHeader() {
+        return "arquivo;preditor;previsoes;erros;acerto;ciclos_penalidade";
+    }
+
+    public String toReportLine(String name) {
+        return name + ';' + tipo + ';' + totalPredictions + ';' + totalMispredictions + ';'
+                + String.format("%.4f", getAccuracy()) + ';' + getPenaltyCycles();
+    }
+}
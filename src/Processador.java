@@ -1,12 +1,113 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
 public class Processador {
-    private final Memoria memoria;
+    private final AcessoMemoria memoria;
+    // a mesma memória, quando é de um só núcleo; null num núcleo de SistemaMulticore, em que não
+    // há checkpoints nem hash de conteúdo
+    private final Memoria memoriaLocal;
     private final Registrador registrador;
+    private final ProgramaDecodificado programa;
+    private final MotorBlocos blocos;
+    private final FusaoInstrucoes fusao;
+    private final RastreadorExecucao trace;
+    private final PerfilExecucao perfil;
+    private final DetectorLaco detector;
+    private final ModeloPipeline pipeline;
+    private final HierarquiaCache cache;
+    private final PreditorDesvios preditor;
+    private final HistoricoExecucao historico;
+    private DispositivoSaida saida; // trocado por SaidaNula enquanto goToCycle reexecuta
     private final boolean debugMode;
+    private final boolean verbose;
+    private final long maxCycles;
+    private final long maxTimeMillis;
+    private final ModoRelogio clock;
+    private final long clockHz;
+    private long sleptSeconds = 0; // relógio VIRTUAL: segundos avançados pelos sleeps
+    private long wakeUpNanos = 0;  // relógio AGENDADO: fim do sleep em andamento (System.nanoTime), 0 = nenhum
+    // fim do orçamento maxTimeMillis, fixado na primeira fatia e zerado por restore(), para que
+    // cada nova execução a partir de um checkpoint tenha o orçamento inteiro; 0 = sem limite
+    private long deadlineNanos = 0;
+    // modelo de falhas: com um tratador armado, uma falha do guest não altera registradores nem
+    // memória, guarda código/argumento/PC e desvia para o tratador, que é desarmado (uso único)
+    private int trapHandler;       // -1 = sem tratador: a falha encerra com ERRO
+    private int faultCode = ERR_NONE;
+    private int faultArg = 0;
+    private int faultPc = 0;
+    private long trapCount = 0;
+    private int coreId = 0; // syscall 12; definido por SistemaMulticore
     private boolean running = true;
     private int pc = 0;
-    private int cycleCount = 0;
+    private long cycleCount = 0;
+    private StatusExecucao status = StatusExecucao.EXECUTANDO;
+    private String errorMessage;
+    private boolean finished = false;
+    private boolean replaying = false; // goToCycle reexecutando a partir de um snapshot
+    // ouvintes, breakpoints e watchpoints: com algum instalado, runUntilCycle usa o laço observado
+    // (um ciclo por vez, sem blocos nem fusão); sem nenhum, o laço normal não testa nada disso
+    private boolean observed = false;
+    private OuvinteExecucao[] listeners = new OuvinteExecucao[0];
+    private final BitSet breakpoints = new BitSet();
+    private final BitSet writeWatchpoints = new BitSet();
+    private final BitSet readWatchpoints = new BitSet();
+    private final short[] registersBefore = new short[8];
+    private boolean paused = false;
+    private int resumePc = -1; // breakpoint onde a execução pausou, ignorado ao retomar
+
+    public static final class Checkpoint {
+        private final int pc;
+        private final long cycleCount;
+        private final long sleptSeconds;
+        private final short[] registers;
+        private final Memoria.Checkpoint memory;
+        private final int trapHandler;
+        private final int faultCode;
+        private final int faultArg;
+        private final int faultPc;
+        private final long trapCount;
+
+        private Checkpoint(Processador p) {
+            this.pc = p.pc;
+            this.cycleCount = p.cycleCount;
+            this.sleptSeconds = p.sleptSeconds;
+            this.registers = p.registrador.toArray();
+            this.memory = p.memoriaLocal.checkpoint();
+            this.trapHandler = p.trapHandler;
+            this.faultCode = p.faultCode;
+            this.faultArg = p.faultArg;
+            this.faultPc = p.faultPc;
+            this.trapCount = p.trapCount;
+        }
+
+        public int getPc() { return pc; }
+        public long getCycleCount() { return cycleCount; }
+    }
 
-    private static final int MAX_CYCLES = 100000;
+    // o relógio de parede só é consultado a cada DEADLINE_CHECK_MASK + 1 passos
+    private static final int DEADLINE_CHECK_MASK = 0x3FF;
+
+    // códigos de erro do ciclo, também lidos pelo guest (syscall 9); a mensagem só é montada
+    // quando a execução termina por causa da falha
+    private static final int ERR_NONE = 0;
+    private static final int ERR_DIVISION_BY_ZERO = 1;
+    private static final int ERR_UNKNOWN_OPCODE_R = 2;
+    private static final int ERR_UNKNOWN_OPCODE_I = 3;
+    private static final int ERR_MEMORY_ACCESS = 4;
+    private static final int ERR_PRINT_STRING = 6;
+    private static final int ERR_SLEEP_INTERRUPTED = 7;
+    static final int ERR_FETCH = 8;
+
+    // instrução corrente, preenchida pelo decode a partir do programa pré-decodificado
+    private int instrFormat;
+    private int instrOpcode;
+    private int instrRd;
+    private int instrRs1;
+    private int instrRs2;
+    private int instrImmediate;
 
     private static class ExecutionResult {
         boolean writeRegister = false;
@@ -25,105 +126,822 @@ public class Processador {
         int conditionRegister = 0;
         int conditionalJumpAddress = 0;
 
+        boolean branchTaken = false;
+        short operand1 = 0;
+        short operand2 = 0;
+
         boolean terminate = false;
-        boolean error = false;
-        String errorMessage = "";
+        int errorCode = ERR_NONE;
+        int errorArg = 0;
+
+        void reset() {
+            writeRegister = false;
+            registerIndex = 0;
+            registerValue = 0;
+            accessMemory = false;
+            isMemoryWrite = false;
+            memoryAddress = 0;
+            memoryValue = 0;
+            jump = false;
+            jumpAddress = 0;
+            conditionalJump = false;
+            conditionRegister = 0;
+            conditionalJumpAddress = 0;
+            branchTaken = false;
+            operand1 = 0;
+            operand2 = 0;
+            terminate = false;
+            errorCode = ERR_NONE;
+            errorArg = 0;
+        }
+
+        void fail(int code, int arg) {
+            errorCode = code;
+            errorArg = arg;
+        }
+    }
+
+    // reaproveitado a cada ciclo para não alocar no caminho quente
+    private final ExecutionResult result = new ExecutionResult();
+
+    public Processador(Memoria memoria, Registrador registrador, boolean debugMode) throws ProcessorException {
+        this(memoria, registrador, debugMode, Motor.INTERPRETADOR);
     }
 
-    public Processador(Memoria memoria, Registrador registrador, boolean debugMode) {
+    public Processador(Memoria memoria, Registrador registrador, boolean debugMode, Motor motor)
+            throws ProcessorException {
+        this(memoria, registrador, new Configuracao().debugMode(debugMode).motor(motor));
+    }
+
+    public Processador(Memoria memoria, Registrador registrador, Configuracao config)
+            throws ProcessorException {
+        this(memoria, memoria, registrador, config);
+    }
+
+    // núcleo de SistemaMulticore sobre a memória compartilhada
+    Processador(MemoriaCompartilhada memoria, Registrador registrador, Configuracao config)
+            throws ProcessorException {
+        this(memoria, null, registrador, config);
+    }
+
+    private Processador(AcessoMemoria memoria, Memoria memoriaLocal, Registrador registrador, Configuracao config)
+            throws ProcessorException {
+        if (memoriaLocal == null) {
+            SistemaMulticore.checkSupported(config);
+        }
         this.memoria = memoria;
+        this.memoriaLocal = memoriaLocal;
         this.registrador = registrador;
-        this.debugMode = debugMode;
+        // sem cache, a análise de blocos e a classificação da fusão só são feitas se usadas
+        CacheProgramas.Imagem imagem = config.getProgramCache() != null ? config.getProgramCache().load(memoria) : null;
+        this.programa = imagem != null ? imagem.programa : new ProgramaDecodificado(memoria);
+        this.debugMode = config.isDebugMode();
+        this.verbose = config.isVerbose();
+        this.maxCycles = config.getMaxCycles();
+        this.maxTimeMillis = config.getMaxTimeMillis();
+        this.clock = config.getClock();
+        this.clockHz = config.getClockHz();
+        this.trapHandler = config.getTrapHandler();
+        this.trace = openTrace(config.getTracePath());
+        this.perfil = config.isProfiling() ? new PerfilExecucao(memoria.getInstructionCount()) : null;
+        this.detector = config.isLoopDetection() ? new DetectorLaco() : null;
+        this.pipeline = config.isPipeline() ? new ModeloPipeline() : null;
+        this.cache = config.getCache() != null ? new HierarquiaCache(config.getCache()) : null;
+        this.preditor = config.getPredictor() != null ? openPredictor(config, memoria.getInstructionCount()) : null;
+        this.historico = config.isHistory()
+                ? new HistoricoExecucao(config.getHistorySnapshotInterval(), config.getHistoryMaxEntries()) : null;
+        this.saida = config.getSaida() != null ? config.getSaida() : new SaidaBufferizada(System.out, System.out.charset());
+        if (detector != null) {
+            memoriaLocal.enableContentHash();
+        }
+        // debug, trace, perfil, histórico e os modelos de temporização observam cada estágio, então
+        // sempre usam o interpretador
+        boolean perCycle = debugMode || trace != null || perfil != null || pipeline != null || cache != null
+                || preditor != null || historico != null;
+        this.fusao = (config.isFusion() && !perCycle)
+                ? (imagem != null ? new FusaoInstrucoes(programa, imagem.fusionKinds) : new FusaoInstrucoes(programa))
+                : null;
+        this.blocos = (config.getMotor() == Motor.BLOCOS && !perCycle)
+                ? new MotorBlocos(programa, imagem != null ? imagem.analise : new AnaliseBlocos(programa), fusao,
+                        detector == null) : null;
+    }
+
+    private static RastreadorExecucao openTrace(String tracePath) throws ProcessorException {
+        if (tracePath == null) {
+            return null;
+        }
+        try {
+            return new RastreadorExecucao(tracePath);
+        } catch (IOException e) {
+            throw new ProcessorException("Erro ao criar arquivo de trace '" + tracePath + "': " + e.getMessage(), e);
+        }
+    }
+
+    private static PreditorDesvios openPredictor(Configuracao config, int programSize) {
+        int entries = config.getPredictorEntries() > 0 ? config.getPredictorEntries()
+                : PreditorDesvios.defaultEntries(config.getPredictor());
+        return new PreditorDesvios(config.getPredictor(), entries, programSize);
     }
 
     public void run() {
-        System.out.println("=== Iniciando Simulador de Processador Monociclo ===");
-        if (debugMode) {
-            System.out.println("Modo DEBUG ativado");
+        if (verbose) {
+            System.out.println("=== Iniciando Simulador de Processador Monociclo ===");
+            if (debugMode) {
+                System.out.println("Modo DEBUG ativado");
+            }
+        }
+
+        StatusExecucao current;
+        while ((current = runUntilHalt()) == StatusExecucao.AGUARDANDO || current == StatusExecucao.PAUSADO) {
+            LockSupport.parkNanos(getWakeUpDelayNanos());
+        }
+
+        if (verbose) {
+            if (cycleCount >= maxCycles) {
+                System.out.println("Limite máximo de ciclos atingido. Possível loop infinito.");
+            }
+            if (status == StatusExecucao.TEMPO_ESGOTADO) {
+                System.out.println("Limite de tempo de execução atingido.");
+            }
+            if (status == StatusExecucao.LACO_INFINITO) {
+                System.out.println(errorMessage);
+            }
+
+            System.out.println("=== Execução finalizada após " + cycleCount + " ciclos ===");
+            printFinalState();
         }
+    }
+
+    // executa até o programa encerrar, falhar ou estourar o orçamento de ciclos/tempo
+    public StatusExecucao runUntilHalt() {
+        return runUntilCycle(maxCycles);
+    }
 
-        while (running && cycleCount < MAX_CYCLES) {
-            cycleCount++;
+    // executa até o ciclo cycleLimit, ou antes se o programa parar; EXECUTANDO indica que a
+    // execução só pausou no limite e pode continuar (p.ex. depois de um checkpoint), PAUSADO que
+    // parou num breakpoint ou watchpoint
+    public StatusExecucao runUntilCycle(long cycleLimit) {
+        return runUntilCycle(cycleLimit, false);
+    }
+
+    // executa uma única unidade do motor: um bloco traduzido, uma superinstrução ou um ciclo, as
+    // menores porções depois das quais o motor tem estado arquitetural (VerificadorDiferencial)
+    StatusExecucao runUnit() {
+        return runUntilCycle(maxCycles, true);
+    }
+
+    private StatusExecucao runUntilCycle(long cycleLimit, boolean singleUnit) {
+        if (maxTimeMillis > 0 && deadlineNanos == 0) {
+            // o orçamento vale para a execução inteira: sono e retomadas também o consomem
+            deadlineNanos = System.nanoTime() + maxTimeMillis * 1_000_000L;
+        }
+        boolean expired = deadlineNanos != 0 && System.nanoTime() - deadlineNanos > 0;
+        if (wakeUpNanos != 0) {
+            if (System.nanoTime() - wakeUpNanos < 0 && !expired) {
+                return status; // ainda dormindo
+            }
+            wakeUpNanos = 0;
+        }
+        long limit = Math.min(cycleLimit, maxCycles);
+        paused = false;
+        if (running) {
+            status = expired ? StatusExecucao.TEMPO_ESGOTADO : StatusExecucao.EXECUTANDO;
+        }
+
+        if (status == StatusExecucao.EXECUTANDO) {
+            if (observed) {
+                runObservedLoop(limit, deadlineNanos);
+            } else if (singleUnit) {
+                runOneUnit(limit);
+            } else {
+                runLoop(limit, deadlineNanos);
+            }
+        }
+
+        if (running && wakeUpNanos != 0) {
+            status = StatusExecucao.AGUARDANDO;
+        }
+        if (running && paused) {
+            status = StatusExecucao.PAUSADO;
+        }
+        if (running && cycleCount >= maxCycles) {
+            status = StatusExecucao.LIMITE_CICLOS;
+        }
+        if (status != StatusExecucao.EXECUTANDO && status != StatusExecucao.AGUARDANDO
+                && status != StatusExecucao.PAUSADO) {
+            finish();
+        }
+        return status;
+    }
 
+    private void runLoop(long limit, long deadline) {
+        int steps = 0;
+        while (running && cycleCount < limit) {
+            if (deadline != 0 && (++steps & DEADLINE_CHECK_MASK) == 0 && System.nanoTime() - deadline > 0) {
+                status = StatusExecucao.TEMPO_ESGOTADO;
+                break;
+            }
+            if (blocos != null && runBlock(limit)) {
+                continue;
+            }
+            if (fusao != null && runFused(limit)) {
+                continue;
+            }
+            step();
+            if (wakeUpNanos != 0) {
+                break;
+            }
+        }
+    }
+
+    // uma iteração de runLoop
+    private void runOneUnit(long limit) {
+        if (!running || cycleCount >= limit) {
+            return;
+        }
+        if (blocos != null && runBlock(limit)) {
+            return;
+        }
+        if (fusao != null && runFused(limit)) {
+            return;
+        }
+        step();
+    }
+
+    private void runObservedLoop(long limit, long deadline) {
+        int steps = 0;
+        while (running && cycleCount < limit) {
+            if (deadline != 0 && (++steps & DEADLINE_CHECK_MASK) == 0 && System.nanoTime() - deadline > 0) {
+                status = StatusExecucao.TEMPO_ESGOTADO;
+                break;
+            }
+            if (pc != resumePc && breakpoints.get(pc)) {
+                paused = true;
+                resumePc = pc;
+                for (OuvinteExecucao listener : listeners) {
+                    listener.onBreakpoint(cycleCount, pc);
+                }
+                break;
+            }
+            resumePc = -1;
+            stepObserved();
+            if (paused || wakeUpNanos != 0) {
+                break;
+            }
+        }
+    }
+
+    // executa um ciclo e reporta aos ouvintes o que ele fez, a partir do ExecutionResult
+    private void stepObserved() {
+        int instrPc = pc;
+        long cycle = cycleCount + 1;
+        int fetched = fetch();
+        if (fetched == Memoria.FAULT) {
+            step();
+            return;
+        }
+        for (OuvinteExecucao listener : listeners) {
+            listener.onFetch(cycle, instrPc, (short) fetched);
+        }
+        for (int i = 0; i < registersBefore.length; i++) {
+            registersBefore[i] = registrador.get(i);
+        }
+        long trapsBefore = trapCount;
+
+        step();
+
+        boolean trapped = trapCount != trapsBefore;
+        boolean syscall = instrFormat == 0 && instrOpcode == 63;
+        if (syscall) {
+            for (OuvinteExecucao listener : listeners) {
+                listener.onSyscall(cycle, instrPc, result.operand1);
+            }
+        }
+        if (result.accessMemory && result.errorCode != ERR_MEMORY_ACCESS) {
+            short value = result.isMemoryWrite ? result.memoryValue : result.registerValue;
+            observeMemory(cycle, instrPc, result.memoryAddress, value, result.isMemoryWrite);
+        } else if (syscall && result.operand1 >= 14 && result.operand1 <= 16 && result.errorCode == ERR_NONE) {
+            // atômica: lê e, exceto num CAS que não bateu, escreve
+            int address = registersBefore[1];
+            boolean write = result.operand1 != 15 || result.registerValue == registersBefore[2];
+            short value = write ? (short) memoria.tryReadData(address) : result.registerValue;
+            observeMemory(cycle, instrPc, address, value, write);
+        }
+        if (trapped) {
+            return;
+        }
+        if (result.writeRegister) {
+            int index = result.registerIndex;
+            for (OuvinteExecucao listener : listeners) {
+                listener.onRegisterWrite(cycle, index, registersBefore[index], registrador.get(index));
+            }
+        }
+        if (result.jump || result.conditionalJump) {
+            int target = result.jump ? result.jumpAddress : result.conditionalJumpAddress;
+            boolean taken = result.jump || result.branchTaken;
+            for (OuvinteExecucao listener : listeners) {
+                listener.onBranch(cycle, instrPc, target, taken);
+            }
+        }
+    }
+
+    private void observeMemory(long cycle, int instrPc, int address, short value, boolean write) {
+        for (OuvinteExecucao listener : listeners) {
+            listener.onMemoryAccess(cycle, address, value, write);
+        }
+        if (address >= 0 && (write ? writeWatchpoints : readWatchpoints).get(address)) {
+            paused = true;
+            for (OuvinteExecucao listener : listeners) {
+                listener.onWatchpoint(cycle, instrPc, address, value, write);
+            }
+        }
+    }
+
+    public void addListener(OuvinteExecucao listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        updateObserved();
+    }
+
+    public void removeListener(OuvinteExecucao listener) {
+        listeners = Arrays.stream(listeners).filter(l -> l != listener).toArray(OuvinteExecucao[]::new);
+        updateObserved();
+    }
+
+    // pausa antes de executar a instrução em pc
+    public void addBreakpoint(int pc) {
+        breakpoints.set(pc);
+        updateObserved();
+    }
+
+    public void removeBreakpoint(int pc) {
+        breakpoints.clear(pc);
+        updateObserved();
+    }
+
+    // pausa depois de uma escrita (ou, com reads, também de uma leitura) no endereço de dados
+    public void addWatchpoint(int address, boolean reads) {
+        writeWatchpoints.set(address);
+        if (reads) {
+            readWatchpoints.set(address);
+        }
+        updateObserved();
+    }
+
+    public void removeWatchpoint(int address) {
+        writeWatchpoints.clear(address);
+        readWatchpoints.clear(address);
+        updateObserved();
+    }
+
+    private void updateObserved() {
+        observed = listeners.length > 0 || !breakpoints.isEmpty() || !writeWatchpoints.isEmpty();
+    }
+
+    // PC, ciclo, registradores e memória (copy-on-write); trace e perfil não fazem parte do checkpoint
+    public Checkpoint checkpoint() {
+        requireLocalMemory();
+        return new Checkpoint(this);
+    }
+
+    public void restore(Checkpoint checkpoint) {
+        requireLocalMemory();
+        restoreState(checkpoint);
+        deadlineNanos = 0; // goToCycle usa só restoreState e continua no orçamento corrente
+        if (historico != null) {
+            historico.reset(cycleCount);
+        }
+    }
+
+    private void requireLocalMemory() {
+        if (memoriaLocal == null) {
+            throw new IllegalStateException("Checkpoints não são suportados com vários núcleos");
+        }
+    }
+
+    private void restoreState(Checkpoint checkpoint) {
+        memoriaLocal.restore(checkpoint.memory);
+        registrador.load(checkpoint.registers);
+        pc = checkpoint.pc;
+        cycleCount = checkpoint.cycleCount;
+        sleptSeconds = checkpoint.sleptSeconds;
+        trapHandler = checkpoint.trapHandler;
+        faultCode = checkpoint.faultCode;
+        faultArg = checkpoint.faultArg;
+        faultPc = checkpoint.faultPc;
+        trapCount = checkpoint.trapCount;
+        resume();
+    }
+
+    // desfaz o último ciclo executado (registrador, memória, PC e modelo de falhas); a saída já
+    // impressa, o trace e os contadores de perfil, pipeline, cache e preditor não voltam.
+    // false quando o histórico está desligado ou já não tem o ciclo anterior
+    public boolean stepBack() {
+        if (historico == null || !historico.canStepBack()) {
+            return false;
+        }
+        long entry;
+        while (((entry = historico.pop()) & HistoricoExecucao.KIND_MASK) != HistoricoExecucao.CYCLE) {
+            if ((entry & HistoricoExecucao.KIND_MASK) == HistoricoExecucao.MEMORY) {
+                memoria.tryWriteData(HistoricoExecucao.memoryAddress(entry), HistoricoExecucao.memoryValue(entry));
+            } else {
+                undoState(HistoricoExecucao.stateField(entry), HistoricoExecucao.stateValue(entry));
+            }
+        }
+        if (HistoricoExecucao.hasRegister(entry)) {
+            registrador.set(HistoricoExecucao.registerIndex(entry), HistoricoExecucao.registerValue(entry));
+        }
+        pc = HistoricoExecucao.previousPc(entry);
+        cycleCount--;
+        historico.rewound(cycleCount);
+        resume();
+        return true;
+    }
+
+    // desfaz até cycles ciclos; devolve quantos foram desfeitos
+    public long stepBack(long cycles) {
+        long undone = 0;
+        while (undone < cycles && stepBack()) {
+            undone++;
+        }
+        return undone;
+    }
+
+    // volta até o PC breakpointPc (pelo menos um ciclo); false se o início do registro chegar antes
+    public boolean runBackTo(int breakpointPc) {
+        while (stepBack()) {
+            if (pc == breakpointPc) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // leva a execução ao ciclo target: para frente executa normalmente; para trás desfaz pelo
+    // registro ou, se for mais curto (ou o trecho já tiver sido descartado), restaura o snapshot
+    // anterior e reexecuta sem imprimir. Com o relógio REAL, a syscall 7 pode ler outro horário
+    public boolean goToCycle(long target) {
+        if (historico == null) {
+            return false;
+        }
+        if (target >= cycleCount) {
+            runUntilCycle(target);
+            return cycleCount == target;
+        }
+        HistoricoExecucao.Snapshot snapshot = historico.snapshotAtOrBefore(target);
+        long undoCycles = target >= historico.getOldestCycle() ? cycleCount - target : Long.MAX_VALUE;
+        if (snapshot != null && target - snapshot.checkpoint.getCycleCount() < undoCycles) {
+            restoreState(snapshot.checkpoint);
+            historico.truncate(snapshot);
+            DispositivoSaida output = saida;
+            saida = new SaidaNula();
+            replaying = true;
             try {
-                executeCycle();
-            } catch (ProcessorException e) {
-                System.err.println("Erro no ciclo " + cycleCount + ": " + e.getMessage());
-                running = false;
+                runUntilCycle(target);
+            } finally {
+                replaying = false;
+                saida = output;
             }
+        } else {
+            stepBack(cycleCount - target);
+        }
+        return cycleCount == target;
+    }
+
+    // ciclo da última escrita no endereço de dados (ou no registrador), ou -1 se ela não está no
+    // registro; os ciclos são numerados como getCycleCount() ao fim de cada um
+    public long lastMemoryWrite(int address) {
+        return historico == null ? -1 : historico.lastMemoryWrite(address, cycleCount);
+    }
+
+    public long lastRegisterWrite(int index) {
+        return historico == null ? -1 : historico.lastRegisterWrite(index, cycleCount);
+    }
+
+    private void undoState(int field, long value) {
+        switch (field) {
+            case HistoricoExecucao.FIELD_TRAP_HANDLER:
+                trapHandler = (int) value;
+                break;
+            case HistoricoExecucao.FIELD_FAULT_CODE:
+                faultCode = (int) value;
+                break;
+            case HistoricoExecucao.FIELD_FAULT_ARG:
+                faultArg = (int) value;
+                break;
+            case HistoricoExecucao.FIELD_FAULT_PC:
+                faultPc = (int) value;
+                break;
+            case HistoricoExecucao.FIELD_TRAP_COUNT:
+                trapCount = value;
+                break;
+            default:
+                sleptSeconds = value;
+                break;
+        }
+    }
+
+    // depois de voltar no tempo a execução pode continuar
+    private void resume() {
+        wakeUpNanos = 0;
+        running = true;
+        status = StatusExecucao.EXECUTANDO;
+        errorMessage = null;
+        if (detector != null) {
+            detector.reset();
+        }
+    }
 
-            if (debugMode && cycleCount % 1000 == 0) {
-                System.out.println("Executando... Ciclo: " + cycleCount);
+    void setCoreId(int coreId) {
+        this.coreId = coreId;
+    }
+
+    // continua uma execução que começou em outro motor (ExecucaoLockstep), com registradores
+    // e memória já carregados, dentro do mesmo orçamento de tempo (deadlineNanos, 0 = sem limite)
+    void startAt(int pc, long cycleCount, long deadlineNanos) {
+        this.pc = pc;
+        this.cycleCount = cycleCount;
+        this.deadlineNanos = deadlineNanos;
+        if (historico != null) {
+            historico.reset(cycleCount);
+        }
+    }
+
+    // depois de stepBack/goToCycle a execução pode terminar de novo: a saída é gravada de novo,
+    // trace e perfil só na primeira vez
+    private void finish() {
+        saida.flush();
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (perfil != null) {
+            perfil.commitEvents(status, cycleCount, pc);
+        }
+        if (trace == null) {
+            return;
+        }
+        try {
+            trace.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar trace: " + e.getMessage());
+        }
+    }
+
+    public StatusExecucao getStatus() { return status; }
+    public String getErrorMessage() { return errorMessage; }
+    public int getPc() { return pc; }
+    public long getCycleCount() { return cycleCount; }
+    public Registrador getRegistrador() { return registrador; }
+    public AcessoMemoria getMemoria() { return memoria; }
+    // quanto falta para acordar, ou para o fim do orçamento de tempo se ele vier antes
+    public long getWakeUpDelayNanos() {
+        if (wakeUpNanos == 0) {
+            return 0;
+        }
+        long wakeUp = deadlineNanos != 0 && deadlineNanos - wakeUpNanos < 0 ? deadlineNanos : wakeUpNanos;
+        return Math.max(0, wakeUp - System.nanoTime());
+    }
+    public DispositivoSaida getSaida() { return saida; }
+    // contadores de execução, ou null quando o perfil não foi habilitado na Configuracao
+    public PerfilExecucao getPerfil() { return perfil; }
+    // temporização no pipeline de 5 estágios, ou null quando não foi habilitada
+    public ModeloPipeline getPipeline() { return pipeline; }
+    // contadores e ciclos de espera da hierarquia de cache, ou null quando não foi habilitada
+    public HierarquiaCache getCache() { return cache; }
+    // acerto do preditor de desvios, ou null quando não foi habilitado
+    public PreditorDesvios getPreditor() { return preditor; }
+    // registro de desfazer, ou null quando o histórico não foi habilitado
+    public HistoricoExecucao getHistorico() { return historico; }
+    // última falha do guest (tratada ou não); códigos ERR_* e PC da instrução que falhou
+    public int getFaultCode() { return faultCode; }
+    public int getFaultArg() { return faultArg; }
+    public int getFaultPc() { return faultPc; }
+    // quantas falhas foram desviadas para o tratador
+    public long getTrapCount() { return trapCount; }
+    // faixa de PCs do laço infinito detectado, ou -1 quando não houve detecção
+    public int getLoopStartPc() { return detector == null ? -1 : detector.getLoopStartPc(); }
+    public int getLoopEndPc() { return detector == null ? -1 : detector.getLoopEndPc(); }
+
+    private void step() {
+        if (historico != null) {
+            if (historico.snapshotDue(cycleCount)) {
+                historico.addSnapshot(new Checkpoint(this));
             }
+            historico.beginCycle(pc);
         }
+        cycleCount++;
+
+        executeCycle();
 
-        if (cycleCount >= MAX_CYCLES) {
-            System.out.println("Limite máximo de ciclos atingido. Possível loop infinito.");
+        if (debugMode && cycleCount % 1000 == 0) {
+            System.out.println("Executando... Ciclo: " + cycleCount);
         }
+    }
 
-        System.out.println("=== Execução finalizada após " + cycleCount + " ciclos ===");
-        printFinalState();
+    // executa o bloco básico traduzido que começa em pc (ou voltas dele, quando é um laço
+    // compilado); retorna false quando a próxima instrução precisa passar pelo interpretador
+    // (terminador, falha ou fim do orçamento)
+    private boolean runBlock(long limit) {
+        MotorBlocos.Bloco bloco = blocos.blockAt(pc);
+        if (bloco == null || cycleCount + bloco.length() > limit) {
+            return false;
+        }
+        int executed = bloco.run(registrador, memoria, limit - cycleCount);
+        pc = bloco.nextPc(registrador, executed);
+        cycleCount += executed;
+        return bloco.isComplete(executed);
+    }
+
+    // executa a superinstrução que começa em pc como dois ciclos; false quando não há par em pc,
+    // o par não cabe no limite ou a segunda metade falharia (o interpretador reproduz a falha)
+    private boolean runFused(long limit) {
+        byte kind = fusao.kindAt(pc);
+        if (kind == FusaoInstrucoes.NONE || cycleCount + 2 > limit) {
+            return false;
+        }
+        int first = pc;
+        if (kind == FusaoInstrucoes.CMP_EQ_JUMP || kind == FusaoInstrucoes.CMP_NEQ_JUMP) {
+            boolean equal = registrador.get(programa.getRs1(first)) == registrador.get(programa.getRs2(first));
+            short condition = (short) (equal == (kind == FusaoInstrucoes.CMP_EQ_JUMP) ? 1 : 0);
+            registrador.set(programa.getRd(first), condition); // a escrita intermediária continua visível
+            cycleCount += 2;
+            if (condition == 1) {
+                pc = programa.getImmediateUnsigned(first + 1);
+                if (detector != null && pc <= first + 1) {
+                    checkLoop(first + 1);
+                }
+            } else {
+                pc = first + 2;
+            }
+            return true;
+        }
+        if (!fusao.pairAt(first).execute(registrador, memoria)) {
+            return false;
+        }
+        pc = first + 2;
+        cycleCount += 2;
+        return true;
     }
 
-    private void executeCycle() throws ProcessorException {
+    private void executeCycle() {
         if (debugMode) {
             System.out.printf("Ciclo %d - PC: %d\n", cycleCount, pc);
         }
 
-        short rawInstruction = fetch();
+        int instrPc = pc;
+        int fetched = fetch();
+        if (fetched == Memoria.FAULT) {
+            boolean trapped = trap(ERR_FETCH, pc, instrPc);
+            if (trace != null) {
+                trace.recordFetchFault(cycleCount, instrPc, trapped, pc);
+            }
+            if (!trapped) {
+                halt(ERR_FETCH, instrPc, false, instrPc);
+            }
+            return;
+        }
+        short rawInstruction = (short) fetched;
+        int memoryStall = cache != null ? cache.fetch(instrPc) : 0;
 
-        Instrucao instruction = decode(rawInstruction);
+        decode(rawInstruction);
 
         if (debugMode) {
-            System.out.println("  Decodificada: " + instruction.toString());
+            System.out.println("  Decodificada: " + new Instrucao(rawInstruction));
         }
-        ExecutionResult result = execute(instruction);
+        execute(result);
         memoryAccess(result);
-        writeBack(result);
-        updatePC(result);
+        if (cache != null && result.accessMemory && result.errorCode == ERR_NONE) {
+            memoryStall += cache.data(Memoria.DATA_START + result.memoryAddress, result.isMemoryWrite);
+        }
+        // falha precisa: com tratador, nem o registrador de destino nem o PC seguem adiante
+        boolean trapped = result.errorCode != ERR_NONE && trap(result.errorCode, result.errorArg, instrPc);
+        if (!trapped) {
+            writeBack(result);
+            updatePC(result);
+        }
+
+        if (trace != null) {
+            recordTrace(instrPc, rawInstruction, trapped);
+        }
+        if (perfil != null) {
+            recordProfile(instrPc);
+        }
+        boolean branchFlush = result.branchTaken;
+        if (preditor != null && result.conditionalJump) {
+            branchFlush = preditor.record(instrPc, result.branchTaken);
+        }
+        if (pipeline != null && result.errorCode == ERR_NONE) {
+            recordPipeline(branchFlush);
+            pipeline.addMemoryStall(memoryStall);
+        }
 
         if (result.terminate) {
             running = false;
+            status = StatusExecucao.ENCERRADO;
         }
-        if (result.error) {
-            throw new ProcessorException(result.errorMessage);
+        if (result.errorCode != ERR_NONE && !trapped) {
+            halt(result.errorCode, result.errorArg, result.isMemoryWrite, instrPc);
         }
     }
 
-    private short fetch() throws ProcessorException {
-        try {
-            return memoria.readInstruction(pc);
-        } catch (Exception e) {
-            throw new ProcessorException("Erro ao buscar instrução no endereço " + pc + ": " + e.getMessage());
+    // desvia para o tratador armado; false quando não há tratador ou a falha é do host
+    private boolean trap(int code, int arg, int instrPc) {
+        if (trapHandler < 0 || code == ERR_SLEEP_INTERRUPTED) {
+            return false;
+        }
+        if (historico != null) {
+            recordFaultState();
+            historico.recordState(HistoricoExecucao.FIELD_TRAP_COUNT, trapCount);
+            historico.recordState(HistoricoExecucao.FIELD_TRAP_HANDLER, trapHandler);
+        }
+        faultCode = code;
+        faultArg = arg;
+        faultPc = instrPc;
+        trapCount++;
+        pc = trapHandler;
+        trapHandler = -1;
+        if (detector != null) {
+            detector.reset(); // tratador e falha fazem parte do estado, mas não da impressão digital
+        }
+        if (debugMode) {
+            System.out.printf("  Falha %d (%s), desviando para o tratador em %d\n", code,
+                    describeError(code, arg), pc);
         }
+        return true;
     }
 
-    private Instrucao decode(short raw) {
-        return new Instrucao(raw);
+    private void halt(int code, int arg, boolean memoryWrite, int instrPc) {
+        if (historico != null) {
+            recordFaultState();
+        }
+        faultCode = code;
+        faultArg = arg;
+        faultPc = instrPc;
+        errorMessage = errorMessage(code, arg, memoryWrite);
+        if (verbose) {
+            saida.flush(); // a saída do guest aparece antes da mensagem de erro
+            System.err.println("Erro no ciclo " + cycleCount + ": " + errorMessage);
+        }
+        running = false;
+        status = StatusExecucao.ERRO;
     }
 
-    private ExecutionResult execute(Instrucao instr) throws ProcessorException {
-        ExecutionResult result = new ExecutionResult();
+    private void recordFaultState() {
+        historico.recordState(HistoricoExecucao.FIELD_FAULT_CODE, faultCode);
+        historico.recordState(HistoricoExecucao.FIELD_FAULT_ARG, faultArg);
+        historico.recordState(HistoricoExecucao.FIELD_FAULT_PC, faultPc);
+    }
 
-        validateInstruction(instr);
+    // instrução em pc, ou Memoria.FAULT fora do programa
+    private int fetch() {
+        if (programa.contains(pc)) {
+            return programa.getRaw(pc);
+        }
+        return memoria.tryReadInstruction(pc);
+    }
 
-        if (instr.isFormatR()) {
-            executeFormatR(instr, result);
+    private void decode(short raw) {
+        if (programa.contains(pc)) {
+            instrFormat = programa.getFormatBit(pc);
+            instrOpcode = programa.getOpcode(pc);
+            instrRd = programa.getRd(pc);
+            instrRs1 = programa.getRs1(pc);
+            instrRs2 = programa.getRs2(pc);
+            instrImmediate = programa.getImmediateUnsigned(pc);
         } else {
-            executeFormatI(instr, result);
+            // fora da área pré-decodificada (região de dados), decodifica a cada ciclo
+            Instrucao instr = new Instrucao(raw);
+            instrFormat = instr.getFormatBit();
+            instrOpcode = instr.getOpcode();
+            instrRd = instr.getRd();
+            instrRs1 = instr.getRs1();
+            instrRs2 = instr.getRs2();
+            instrImmediate = instr.getImmediateUnsigned();
         }
+    }
+
+    // os índices de registrador vêm de campos de 3 bits, então não há o que validar aqui
+    private void execute(ExecutionResult result) {
+        result.reset();
 
-        return result;
+        if (instrFormat == 0) {
+            executeFormatR(result);
+        } else {
+            executeFormatI(result);
+        }
     }
 
-    private void executeFormatR(Instrucao instr, ExecutionResult result) throws ProcessorException {
-        int opcode = instr.getOpcode();
-        int rd = instr.getRd();
-        int rs1 = instr.getRs1();
-        int rs2 = instr.getRs2();
+    private void executeFormatR(ExecutionResult result) {
+        int opcode = instrOpcode;
+        int rd = instrRd;
+        int rs1 = instrRs1;
+        int rs2 = instrRs2;
 
         short val1 = registrador.get(rs1);
         short val2 = registrador.get(rs2);
+        result.operand1 = val1;
+        result.operand2 = val2;
 
         switch (opcode) {
             case 0:
@@ -158,8 +976,7 @@ public class Processador {
 
             case 3:
                 if (val2 == 0) {
-                    result.error = true;
-                    result.errorMessage = "Divisão por zero: R" + rs2 + " = 0";
+                    result.fail(ERR_DIVISION_BY_ZERO, rs2);
                 } else {
                     result.writeRegister = true;
                     result.registerIndex = rd;
@@ -218,16 +1035,15 @@ public class Processador {
                 break;
 
             default:
-                result.error = true;
-                result.errorMessage = "Opcode desconhecido no formato R: " + opcode;
+                result.fail(ERR_UNKNOWN_OPCODE_R, opcode);
                 break;
         }
     }
 
-    private void executeFormatI(Instrucao instr, ExecutionResult result) throws ProcessorException {
-        int opcode = instr.getOpcode();
-        int rd = instr.getRd();
-        int imediato = instr.getImmediateUnsigned();
+    private void executeFormatI(ExecutionResult result) {
+        int opcode = instrOpcode;
+        int rd = instrRd;
+        int imediato = instrImmediate;
 
         switch (opcode) {
             case 0:
@@ -257,48 +1073,60 @@ public class Processador {
                 break;
 
             default:
-                result.error = true;
-                result.errorMessage = "Opcode desconhecido no formato I: " + opcode;
+                result.fail(ERR_UNKNOWN_OPCODE_I, opcode);
                 break;
         }
     }
 
 
-    private void memoryAccess(ExecutionResult result) throws ProcessorException {
-        if (result.accessMemory) {
-            try {
-                if (result.isMemoryWrite) {
-                    memoria.writeData(result.memoryAddress, result.memoryValue);
-                } else {
-                    result.registerValue = memoria.readData(result.memoryAddress);
+    private void memoryAccess(ExecutionResult result) {
+        if (!result.accessMemory) {
+            return;
+        }
+        if (result.isMemoryWrite) {
+            int old = historico != null ? memoria.tryReadData(result.memoryAddress) : Memoria.FAULT;
+            if (memoria.tryWriteData(result.memoryAddress, result.memoryValue)) {
+                if (old != Memoria.FAULT) {
+                    historico.recordMemory(result.memoryAddress, (short) old);
                 }
-            } catch (Exception e) {
-                result.error = true;
-                result.errorMessage = "Erro no acesso à memória no endereço " +
-                        result.memoryAddress + ": " + e.getMessage();
+            } else {
+                result.fail(ERR_MEMORY_ACCESS, result.memoryAddress);
+            }
+        } else {
+            int value = memoria.tryReadData(result.memoryAddress);
+            if (value == Memoria.FAULT) {
+                result.fail(ERR_MEMORY_ACCESS, result.memoryAddress);
+            } else {
+                result.registerValue = (short) value;
             }
         }
     }
 
-    private void writeBack(ExecutionResult result) throws ProcessorException {
+    // sem tratador, um LOAD que falhou ainda escreve 0 no destino, como sempre foi
+    private void writeBack(ExecutionResult result) {
         if (result.writeRegister) {
-            try {
-                registrador.set(result.registerIndex, result.registerValue);
-            } catch (Exception e) {
-                result.error = true;
-                result.errorMessage = "Erro ao escrever no registrador R" +
-                        result.registerIndex + ": " + e.getMessage();
+            if (historico != null) {
+                historico.recordRegister(result.registerIndex, registrador.get(result.registerIndex));
             }
+            registrador.set(result.registerIndex, result.registerValue);
         }
     }
 
     private void updatePC(ExecutionResult result) {
+        int branchPc = pc;
         if (result.jump) {
             pc = result.jumpAddress;
+            if (detector != null && pc <= branchPc) {
+                checkLoop(branchPc);
+            }
         } else if (result.conditionalJump) {
             short condition = registrador.get(result.conditionRegister);
             if (condition == 1) {
+                result.branchTaken = true;
                 pc = result.conditionalJumpAddress;
+                if (detector != null && pc <= branchPc) {
+                    checkLoop(branchPc);
+                }
                 if (debugMode) {
                     System.out.printf("  Condição verdadeira, saltando para %d\n", pc);
                 }
@@ -313,8 +1141,17 @@ public class Processador {
         }
     }
 
+    private void checkLoop(int branchPc) {
+        if (detector.visit(pc, branchPc, registrador, memoriaLocal.getContentHash())) {
+            running = false;
+            status = StatusExecucao.LACO_INFINITO;
+            errorMessage = "Laço infinito detectado entre PC " + pc + " e PC " + branchPc;
+        }
+    }
+
     private void handleSyscall(ExecutionResult result) {
         short service = registrador.get(0);
+        result.operand1 = service;
 
         if (debugMode) {
             System.out.printf("  SYSCALL: serviço %d\n", service);
@@ -323,70 +1160,287 @@ public class Processador {
         switch (service) {
             case 0:
                 result.terminate = true;
-                System.out.println("Programa encerrado via syscall");
+                if (verbose) {
+                    saida.print("Programa encerrado via syscall");
+                    saida.newline();
+                }
                 break;
 
             case 1:
-                try {
-                    int addr = registrador.get(1);
-                    StringBuilder sb = new StringBuilder();
-                    short c;
-                    while ((c = memoria.readData(addr)) != 0) {
-                        sb.append((char) c);
-                        addr++;
-                    }
-                    System.out.print(sb.toString());
-                } catch (Exception e) {
-                    result.error = true;
-                    result.errorMessage = "Erro na syscall print_string: " + e.getMessage();
+                int faultAddress = printString(registrador.get(1));
+                if (faultAddress != NO_FAULT) {
+                    result.fail(ERR_PRINT_STRING, faultAddress);
                 }
                 break;
 
             case 2:
-                System.out.println();
+                saida.newline();
                 break;
 
             case 3:
-                System.out.println(registrador.get(1));
+                saida.printInt(registrador.get(1));
+                saida.newline();
                 break;
 
             case 6:
-                try {
-                    int sleepTime = registrador.get(1);
-                    Thread.sleep(sleepTime * 1000L);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    result.error = true;
-                    result.errorMessage = "Sleep interrompido";
+                if (detector != null) {
+                    detector.reset(); // sleep e relógio tornam o estado dependente do tempo
                 }
+                sleep(result, registrador.get(1));
                 break;
 
             case 7:
-                int currentTime = (int) (System.currentTimeMillis() / 1000);
+                if (detector != null) {
+                    detector.reset();
+                }
+                int currentTime = (int) currentTimeSeconds();
                 result.writeRegister = true;
                 result.registerIndex = 1;
                 result.registerValue = (short) currentTime;
                 break;
 
+            case 8: // arma o tratador de falhas em R1; negativo desarma
+                if (historico != null) {
+                    historico.recordState(HistoricoExecucao.FIELD_TRAP_HANDLER, trapHandler);
+                }
+                trapHandler = Math.max(-1, registrador.get(1));
+                if (detector != null) {
+                    detector.reset();
+                }
+                break;
+
+            case 9: // R1 = código da última falha (0 = nenhuma)
+                writeSyscallResult(result, faultCode);
+                break;
+
+            case 10: // R1 = argumento da falha (endereço, registrador ou opcode)
+                writeSyscallResult(result, faultArg);
+                break;
+
+            case 11: // R1 = PC da instrução que falhou
+                writeSyscallResult(result, faultPc);
+                break;
+
+            case 12: // R1 = número do núcleo
+                writeSyscallResult(result, coreId);
+                break;
+
+            case 13:
+                memoria.fence();
+                break;
+
+            case 14: // R1 = MEM[R1], MEM[R1] += R2
+                atomicResult(result, registrador.get(1),
+                        memoria.getAndAddData(registrador.get(1), registrador.get(2)));
+                break;
+
+            case 15: // R1 = MEM[R1], MEM[R1] = R3 se o valor era R2
+                atomicResult(result, registrador.get(1),
+                        memoria.compareAndExchangeData(registrador.get(1), registrador.get(2), registrador.get(3)));
+                break;
+
+            case 16: // R1 = MEM[R1], MEM[R1] = R2
+                atomicResult(result, registrador.get(1),
+                        memoria.getAndSetData(registrador.get(1), registrador.get(2)));
+                break;
+
             default:
-                System.out.println("Syscall não implementado: " + service);
+                if (verbose) {
+                    saida.print("Syscall não implementado: ");
+                    saida.printInt(service);
+                    saida.newline();
+                }
                 break;
         }
+
+        if (debugMode) {
+            saida.flush(); // mantém a ordem com as linhas do debug, que vão direto para System.out
+        }
     }
 
-    private void validateInstruction(Instrucao instr) throws ProcessorException {
-        if (instr.isFormatR()) {
-            validateRegisterIndex(instr.getRd(), "rd");
-            validateRegisterIndex(instr.getRs1(), "rs1");
-            validateRegisterIndex(instr.getRs2(), "rs2");
+    private void sleep(ExecutionResult result, int seconds) {
+        if (replaying && clock != ModoRelogio.VIRTUAL) {
+            return; // a espera já aconteceu na primeira execução
+        }
+        switch (clock) {
+            case VIRTUAL:
+                if (historico != null) {
+                    historico.recordState(HistoricoExecucao.FIELD_SLEPT_SECONDS, sleptSeconds);
+                }
+                sleptSeconds += Math.max(0, seconds);
+                break;
+
+            case AGENDADO:
+                // a thread fica livre; quem chamou runUntilHalt decide onde esperar
+                if (seconds > 0) {
+                    wakeUpNanos = System.nanoTime() + seconds * 1_000_000_000L;
+                }
+                break;
+
+            default:
+                try {
+                    long sleepNanos = Math.max(0, seconds) * 1_000_000_000L;
+                    long remaining = deadlineNanos != 0 ? Math.max(0, deadlineNanos - System.nanoTime()) : sleepNanos;
+                    TimeUnit.NANOSECONDS.sleep(Math.min(sleepNanos, remaining));
+                    if (remaining < sleepNanos) {
+                        // o sono passaria do orçamento: a execução termina no fim dele
+                        running = false;
+                        status = StatusExecucao.TEMPO_ESGOTADO;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.fail(ERR_SLEEP_INTERRUPTED, 0);
+                }
+                break;
+        }
+    }
+
+    private long currentTimeSeconds() {
+        if (clock == ModoRelogio.VIRTUAL) {
+            return cycleCount / clockHz + sleptSeconds;
+        }
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static void writeSyscallResult(ExecutionResult result, int value) {
+        result.writeRegister = true;
+        result.registerIndex = 1;
+        result.registerValue = (short) value;
+    }
+
+    private void atomicResult(ExecutionResult result, int address, int old) {
+        if (old == Memoria.FAULT) {
+            result.fail(ERR_MEMORY_ACCESS, address);
+        } else {
+            if (historico != null) {
+                historico.recordMemory(address, (short) old);
+            }
+            writeSyscallResult(result, old);
+        }
+    }
+
+    private static final int NO_FAULT = -1;
+
+    // a string só vai para a saída se for lida inteira, como antes: uma falha não imprime nada;
+    // devolve o endereço inválido ou NO_FAULT
+    private int printString(int start) {
+        int end = start;
+        int word;
+        while ((word = memoria.tryReadData(end)) != 0) {
+            if (word == Memoria.FAULT) {
+                return end;
+            }
+            end++;
+        }
+        for (int addr = start; addr < end; addr++) {
+            saida.write((char) memoria.tryReadData(addr));
+        }
+        return NO_FAULT;
+    }
+
+    private void recordTrace(int instrPc, short rawInstruction, boolean trapped) {
+        int flags = 0;
+        if (trapped) {
+            flags |= RastreadorExecucao.FLAG_TRAPPED; // nada foi escrito nos registradores
+        } else if (result.writeRegister) {
+            flags |= RastreadorExecucao.FLAG_REGISTER_WRITE;
+        }
+        if (result.accessMemory) {
+            flags |= RastreadorExecucao.FLAG_MEMORY_ACCESS;
+            if (result.isMemoryWrite) {
+                flags |= RastreadorExecucao.FLAG_MEMORY_WRITE;
+            }
+        }
+        if (result.conditionalJump) {
+            flags |= RastreadorExecucao.FLAG_CONDITIONAL;
+        }
+        if (result.branchTaken) {
+            flags |= RastreadorExecucao.FLAG_TAKEN;
+        }
+        if (result.jump) {
+            flags |= RastreadorExecucao.FLAG_JUMP;
+        }
+        if (result.terminate) {
+            flags |= RastreadorExecucao.FLAG_TERMINATE;
+        }
+        short memoryValue = result.isMemoryWrite ? result.memoryValue : result.registerValue;
+        trace.record(cycleCount, instrPc, rawInstruction, flags, result.registerIndex, result.registerValue,
+                result.memoryAddress, memoryValue, result.operand1, result.operand2, pc,
+                result.errorCode, result.errorArg);
+    }
+
+    private void recordProfile(int instrPc) {
+        perfil.recordInstruction(instrPc, instrFormat == 0, instrOpcode);
+        if (result.conditionalJump) {
+            perfil.recordBranch(instrPc, result.branchTaken);
+        }
+        if (result.accessMemory && result.errorCode != ERR_MEMORY_ACCESS) {
+            perfil.recordMemoryAccess(result.memoryAddress, result.isMemoryWrite);
+        }
+        if (instrFormat == 0 && instrOpcode == 63) {
+            perfil.recordSyscall(result.operand1);
+        }
+    }
+
+    private void recordPipeline(boolean branchFlush) {
+        int none = ModeloPipeline.NO_REGISTER;
+        int dest = result.writeRegister ? result.registerIndex : none;
+        if (instrFormat == 0) {
+            switch (instrOpcode) {
+                case 15:
+                    pipeline.issue(instrRs1, none, none, dest, true, false, false);
+                    break;
+                case 16:
+                    pipeline.issue(instrRs1, none, instrRs2, none, false, false, false);
+                    break;
+                case 63:
+                    pipeline.issue(0, 1, none, dest, false, false, false); // serviço em R0, argumento em R1
+                    break;
+                default:
+                    pipeline.issue(instrRs1, instrRs2, none, dest, false, false, false);
+                    break;
+            }
         } else {
-            validateRegisterIndex(instr.getRd(), "rd");
+            int condition = result.conditionalJump ? result.conditionRegister : none;
+            pipeline.issue(condition, none, none, dest, false, result.jump, result.conditionalJump && branchFlush);
         }
     }
 
-    private void validateRegisterIndex(int index, String name) throws ProcessorException {
-        if (index < 0 || index >= registrador.size()) {
-            throw new ProcessorException("Índice de registrador inválido para " + name + ": " + index);
+    // mesma mensagem de quando a falha vinha de uma exceção da Memoria; também usada pelo
+    // DecodificadorTrace
+    static String errorMessage(int code, int arg, boolean memoryWrite) {
+        String message = describeError(code, arg);
+        switch (code) {
+            case ERR_MEMORY_ACCESS:
+                return message + ": Endereço de dados inválido" + (memoryWrite ? " para escrita: " : ": ") + arg;
+            case ERR_PRINT_STRING:
+                return message + ": Endereço de dados inválido: " + arg;
+            case ERR_FETCH:
+                return message + ": Endereço de instrução inválido: " + arg;
+            default:
+                return message;
+        }
+    }
+
+    // descrição da falha sem a causa
+    static String describeError(int errorCode, int errorArg) {
+        switch (errorCode) {
+            case ERR_DIVISION_BY_ZERO:
+                return "Divisão por zero: R" + errorArg + " = 0";
+            case ERR_UNKNOWN_OPCODE_R:
+                return "Opcode desconhecido no formato R: " + errorArg;
+            case ERR_UNKNOWN_OPCODE_I:
+                return "Opcode desconhecido no formato I: " + errorArg;
+            case ERR_MEMORY_ACCESS:
+                return "Erro no acesso à memória no endereço " + errorArg;
+            case ERR_PRINT_STRING:
+                return "Erro na syscall print_string";
+            case ERR_SLEEP_INTERRUPTED:
+                return "Sleep interrompido";
+            case ERR_FETCH:
+                return "Erro ao buscar instrução no endereço " + errorArg;
+            default:
+                return "Erro desconhecido: " + errorCode;
         }
     }
 
@@ -398,6 +1452,21 @@ public class Processador {
             System.out.println("\n=== Estatísticas ===");
             System.out.println("Total de ciclos executados: " + cycleCount);
             System.out.println("PC final: " + pc);
+            System.out.println("Páginas de memória residentes: " + memoria.getResidentPages() + " de "
+                    + memoria.getTotalPages() + " (" + memoria.getResidentPages() * Memoria.PAGE_WORDS * 2 / 1024 + " KB)");
+        }
+
+        if (perfil != null) {
+            perfil.printSummary(System.out);
+        }
+        if (pipeline != null) {
+            pipeline.printSummary(System.out);
+        }
+        if (cache != null) {
+            cache.printSummary(System.out, cycleCount);
+        }
+        if (preditor != null) {
+            preditor.printSummary(System.out);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+public class ProgramaDecodificado {
+    private final int size;
+
+    // tabelas indexadas pelo PC (struct-of-arrays)
+    private final short[] raw;
+    private final byte[] format;
+    private final byte[] opcode;
+    private final byte[] rd;
+    private final byte[] rs1;
+    private final byte[] rs2;
+    private final short[] immediate;
+
+    public ProgramaDecodificado(AcessoMemoria memoria) throws ProcessorException {
+        // a área de instruções acima de DATA_START é compartilhada com os dados e pode
+        // ser alterada por STORE, então só a parte imutável é decodificada
+        this.size = Math.min(memoria.getInstructionCount(), Memoria.DATA_START);
+        this.raw = new short[size];
+        this.format = new byte[size];
+        this.opcode = new byte[size];
+        this.rd = new byte[size];
+        this.rs1 = new byte[size];
+        this.rs2 = new byte[size];
+        this.immediate = new short[size];
+
+        for (int pc = 0; pc < size; pc++) {
+            Instrucao instr = new Instrucao(memoria.readInstruction(pc));
+            raw[pc] = instr.getRaw();
+            format[pc] = (byte) instr.getFormatBit();
+            opcode[pc] = (byte) instr.getOpcode();
+            rd[pc] = (byte) instr.getRd();
+            rs1[pc] = (byte) instr.getRs1();
+            rs2[pc] = (byte) instr.getRs2();
+            immediate[pc] = (short) instr.getImmediateUnsigned();
+        }
+    }
+
+    // tabelas já decodificadas (CacheProgramas)
+    ProgramaDecodificado(short[] raw, byte[] format, byte[] opcode, byte[] rd, byte[] rs1, byte[] rs2,
+                         short[] immediate) {
+        this.size = raw.length;
+        this.raw = raw;
+        this.format = format;
+        this.opcode = opcode;
+        this.rd = rd;
+        this.rs1 = rs1;
+        this.rs2 = rs2;
+        this.immediate = immediate;
+    }
+
+    public int size() { return size; }
+    public boolean contains(int pc) { return pc >= 0 && pc < size; }
+
+    public short getRaw(int pc) { return raw[pc]; }
+    public int getFormatBit(int pc) { return format[pc]; }
+    public boolean isFormatR(int pc) { return format[pc] == 0; }
+    public int getOpcode(int pc) { return opcode[pc]; }
+    public int getRd(int pc) { return rd[pc]; }
+    public int getRs1(int pc) { return rs1[pc]; }
+    public int getRs2(int pc) { return rs2[pc]; }
+    public int getImmediateUnsigned(int pc) { return immediate[pc]; }
+}
@@ -0,0 +1,152 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Grava um registro binário de tamanho fixo por ciclo em segmentos pré-alocados que circulam
+// entre o processador e uma thread de escrita. O arquivo é lido pelo DecodificadorTrace.
+public class RastreadorExecucao implements AutoCloseable {
+    static final int MAGIC = 0x54524331; // "TRC1"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 8;
+    static final int ENTRY_SIZE = 32;
+
+    // layout do registro (little-endian):
+    //  0 long  ciclo          16 short endereço de memória
+    //  8 short pc             18 short valor de memória
+    // 10 short instrução      20 short operando 1 (valor de rs1 ou serviço do syscall)
+    // 12 byte  flags          22 short operando 2 (valor de rs2)
+    // 13 byte  registrador    24 short próximo pc
+    // 14 short valor escrito  26 byte código de erro, 27 byte flags (bits 8 a 15),
+    //                        28 int argumento do erro
+    static final int FLAG_REGISTER_WRITE = 0x01;
+    static final int FLAG_MEMORY_ACCESS = 0x02;
+    static final int FLAG_MEMORY_WRITE = 0x04;
+    static final int FLAG_CONDITIONAL = 0x08;
+    static final int FLAG_TAKEN = 0x10;
+    static final int FLAG_JUMP = 0x20;
+    static final int FLAG_TERMINATE = 0x40;
+    static final int FLAG_FETCH_FAULT = 0x80;
+    static final int FLAG_TRAPPED = 0x100; // falha desviada para o tratador; o próximo pc é o dele
+
+    private static final int SEGMENT_ENTRIES = 4096;
+    private static final int SEGMENTS = 8;
+    private static final ByteBuffer END_OF_TRACE = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(SEGMENTS);
+    private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(SEGMENTS + 1);
+    private final Thread writer;
+    private ByteBuffer current;
+    private volatile IOException failure;
+    private boolean closed = false;
+
+    public RastreadorExecucao(String tracePath) throws IOException {
+        this.channel = FileChannel.open(Paths.get(tracePath), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putShort((short) VERSION).putShort((short) ENTRY_SIZE).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+
+        for (int i = 0; i < SEGMENTS; i++) {
+            free.add(ByteBuffer.allocateDirect(SEGMENT_ENTRIES * ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+        }
+        this.current = free.poll();
+
+        this.writer = new Thread(this::drain, "trace-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public void record(long cycle, int pc, short raw, int flags, int registerIndex, short registerValue,
+                       int memoryAddress, short memoryValue, short operand1, short operand2, int nextPc,
+                       int errorCode, int errorArg) {
+        if (closed || (current.remaining() < ENTRY_SIZE && !swap())) {
+            return;
+        }
+        current.putLong(cycle)
+                .putShort((short) pc)
+                .putShort(raw)
+                .put((byte) flags)
+                .put((byte) registerIndex)
+                .putShort(registerValue)
+                .putShort((short) memoryAddress)
+                .putShort(memoryValue)
+                .putShort(operand1)
+                .putShort(operand2)
+                .putShort((short) nextPc)
+                .put((byte) errorCode)
+                .put((byte) (flags >>> 8))
+                .putInt(errorArg);
+    }
+
+    public void recordFetchFault(long cycle, int pc, boolean trapped, int nextPc) {
+        record(cycle, pc, (short) 0, FLAG_FETCH_FAULT | (trapped ? FLAG_TRAPPED : 0), 0, (short) 0, 0, (short) 0,
+                (short) 0, (short) 0, nextPc, 0, 0);
+    }
+
+    // entrega o segmento cheio para a thread de escrita e pega um livre (espera se todos estiverem em uso)
+    private boolean swap() {
+        try {
+            current.flip();
+            full.put(current);
+            current = free.take();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void drain() {
+        try {
+            ByteBuffer segment;
+            while ((segment = full.take()) != END_OF_TRACE) {
+                if (failure == null) {
+                    try {
+                        while (segment.hasRemaining()) {
+                            channel.write(segment);
+                        }
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                segment.clear();
+                free.put(segment);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (current.position() > 0) {
+                current.flip();
+                full.put(current);
+            }
+            full.put(END_OF_TRACE);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Gravação do trace interrompida");
+        } finally {
+            channel.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -23,6 +23,23 @@ public class Registrador {
         }
     }
 
+    public short[] toArray() {
+        return registers.clone();
+    }
+
+    // o próprio array, sem cópia, para os blocos compilados pelo CompiladorBlocos
+    short[] array() {
+        return registers;
+    }
+
+    public void load(short[] values) {
+        if (values.length != NUM_REGISTERS) {
+            throw new IllegalArgumentException("Esperados " + NUM_REGISTERS + " registradores, recebidos " +
+                    values.length);
+        }
+        System.arraycopy(values, 0, registers, 0, NUM_REGISTERS);
+    }
+
     public int size() {
         return NUM_REGISTERS;
     }
@@ -0,0 +1,65 @@
+public class ResultadoTarefa {
+    private final String name;
+    private final StatusExecucao status;
+    private final long cycles;
+    private final int pc;
+    private final short[] registers;
+    private final long elapsedNanos;
+    private final String errorMessage;
+    private final String output;
+    private final int residentPages;
+    private final ModeloPipeline pipeline;
+    private final HierarquiaCache cache;
+    private final PreditorDesvios preditor;
+
+    public ResultadoTarefa(String name, StatusExecucao status, long cycles, int pc, short[] registers,
+                           long elapsedNanos, String errorMessage, String output, int residentPages,
+                           ModeloPipeline pipeline, HierarquiaCache cache, PreditorDesvios preditor) {
+        this.name = name;
+        this.status = status;
+        this.cycles = cycles;
+        this.pc = pc;
+        this.registers = registers;
+        this.elapsedNanos = elapsedNanos;
+        this.errorMessage = errorMessage;
+        this.output = output;
+        this.residentPages = residentPages;
+        this.pipeline = pipeline;
+        this.cache = cache;
+        this.preditor = preditor;
+    }
+
+    public String getName() { return name; }
+    public StatusExecucao getStatus() { return status; }
+    public long getCycles() { return cycles; }
+    public int getPc() { return pc; }
+    public short[] getRegisters() { return registers.clone(); }
+    public long getElapsedNanos() { return elapsedNanos; }
+    public String getErrorMessage() { return errorMessage; }
+    // texto impresso pelo programa guest, vazio quando a saída não foi capturada
+    public String getOutput() { return output; }
+    // páginas de 4 KB da memória guest alocadas no fim da execução
+    public int getResidentPages() { return residentPages; }
+    // null quando o modelo de pipeline não estava habilitado
+    public ModeloPipeline getPipeline() { return pipeline; }
+    // null quando o modelo de cache não estava habilitado
+    public HierarquiaCache getCache() { return cache; }
+    // null quando o preditor de desvios não estava habilitado
+    public PreditorDesvios getPreditor() { return preditor; }
+
+    public String toReportLine() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(name).append(';').append(status).append(';').append(cycles).append(';').append(pc)
+                .append(';').append(String.format("%.3f", elapsedNanos / 1_000_000.0));
+        for (short register : registers) {
+            sb.append(';').append(register);
+        }
+        sb.append(';').append(residentPages);
+        sb.append(';').append(errorMessage == null ? "" : errorMessage.replace(';', ','));
+        return sb.toString();
+    }
+
+    public static String reportHeader() {
+        return "arquivo;status;ciclos;pc;tempo_ms;R0;R1;R2;R3;R4;R5;R6;R7;paginas;erro";
+    }
+}
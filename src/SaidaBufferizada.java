@@ -0,0 +1,164 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+// Acumula a saída já codificada num buffer de bytes e só escreve no destino quando o buffer
+// enche ou em flush(), sem passar pela sincronização de System.out a cada caractere.
+public class SaidaBufferizada implements DispositivoSaida {
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private final byte[] lineSeparator;
+    private final byte[] digits = new byte[11];
+    private int count = 0;
+    private IOException failure;
+
+    // caracteres fora do ASCII passam pelo encoder, com buffers reaproveitados
+    private final CharsetEncoder encoder;
+    private final CharBuffer pendingChars = CharBuffer.allocate(2);
+    private final ByteBuffer encodedBytes;
+    private char highSurrogate = 0; // metade de um par UTF-16 à espera da outra
+
+    public SaidaBufferizada(OutputStream out) {
+        this(out, StandardCharsets.UTF_8);
+    }
+
+    public SaidaBufferizada(OutputStream out, Charset charset) {
+        this(out, charset, DEFAULT_CAPACITY);
+    }
+
+    public SaidaBufferizada(OutputStream out, Charset charset, int capacity) {
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.encodedBytes = ByteBuffer.allocate((int) Math.ceil(encoder.maxBytesPerChar() * 2) + 4);
+        this.lineSeparator = System.lineSeparator().getBytes(charset);
+        if (capacity < encodedBytes.capacity() + digits.length + lineSeparator.length) {
+            throw new IllegalArgumentException("Capacidade do buffer muito pequena: " + capacity);
+        }
+        this.out = out;
+        this.buffer = new byte[capacity];
+    }
+
+    @Override
+    public void write(char c) {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                encode(high, c, 2);
+                return;
+            }
+            encode(high, c, 1); // sem par: vira o caractere de substituição, como no PrintStream
+        }
+        if (c < 0x80) {
+            if (count == buffer.length) {
+                drain();
+            }
+            buffer[count++] = (byte) c;
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else {
+            encode(c, c, 1);
+        }
+    }
+
+    private void encode(char first, char second, int length) {
+        pendingChars.clear();
+        pendingChars.put(first);
+        if (length == 2) {
+            pendingChars.put(second);
+        }
+        pendingChars.flip();
+        encodedBytes.clear();
+        encoder.reset();
+        encoder.encode(pendingChars, encodedBytes, true);
+        encoder.flush(encodedBytes);
+        encodedBytes.flip();
+
+        int n = encodedBytes.remaining();
+        if (count + n > buffer.length) {
+            drain();
+        }
+        encodedBytes.get(buffer, count, n);
+        count += n;
+    }
+
+    @Override
+    public void print(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            write(text.charAt(i));
+        }
+    }
+
+    @Override
+    public void printInt(int value) {
+        long v = value;
+        boolean negative = v < 0;
+        if (negative) {
+            v = -v;
+        }
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + (v % 10));
+            v /= 10;
+        } while (v != 0);
+
+        if (count + n + 1 > buffer.length) {
+            drain();
+        }
+        if (negative) {
+            buffer[count++] = '-';
+        }
+        while (n > 0) {
+            buffer[count++] = digits[--n];
+        }
+    }
+
+    @Override
+    public void newline() {
+        if (count + lineSeparator.length > buffer.length) {
+            drain();
+        }
+        System.arraycopy(lineSeparator, 0, buffer, count, lineSeparator.length);
+        count += lineSeparator.length;
+    }
+
+    @Override
+    public void flush() {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            encode(high, high, 1);
+        }
+        drain();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void drain() {
+        if (count == 0) {
+            return;
+        }
+        try {
+            out.write(buffer, 0, count);
+        } catch (IOException e) {
+            failure = e; // como PrintStream, guarda o erro em vez de interromper o guest
+        }
+        count = 0;
+    }
+
+    // erro de escrita no destino, ou null
+    public IOException getFailure() {
+        return failure;
+    }
+}
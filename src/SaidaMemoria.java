@@ -0,0 +1,21 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Captura a saída em memória (testes e execução em lote), separada por programa.
+public class SaidaMemoria extends SaidaBufferizada {
+    private final ByteArrayOutputStream captured;
+
+    public SaidaMemoria() {
+        this(new ByteArrayOutputStream());
+    }
+
+    private SaidaMemoria(ByteArrayOutputStream captured) {
+        super(captured, StandardCharsets.UTF_8, 4096);
+        this.captured = captured;
+    }
+
+    public String getText() {
+        flush();
+        return new String(captured.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
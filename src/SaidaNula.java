@@ -0,0 +1,8 @@
+// Descarta toda a saída (benchmarks e execuções em que a saída não interessa).
+public class SaidaNula implements DispositivoSaida {
+    @Override public void write(char c) { }
+    @Override public void print(String text) { }
+    @Override public void printInt(int value) { }
+    @Override public void newline() { }
+    @Override public void flush() { }
+}
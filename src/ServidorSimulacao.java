@@ -0,0 +1,253 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Servidor residente: recebe pedidos de execução por linha (stdin, TCP local ou socket Unix)
+// e roda cada um numa virtual thread, com a JVM e o JIT já aquecidos.
+//
+// Pedido:   EXEC <id> [ciclos=N] [tempo=MS] [motor=M] [relogio=R] [frequencia=HZ] [fusao=true|false]
+//                     [detectar-laco=true|false] [memoria-bits=B]
+//                     [tratador=PC] (imagem=<base64> | arquivo=<caminho.bin>)
+// Resposta: OK <id> status=S ciclos=N pc=P regs=r0,...,r7 tempo_ms=T paginas=K saida=<base64> erro=<base64>
+//           ERRO <id> <mensagem>
+// Também: PING -> PONG, e FIM encerra a conexão depois de responder os pedidos pendentes.
+// As respostas podem sair fora de ordem; o id as relaciona aos pedidos.
+public class ServidorSimulacao {
+    private final Configuracao config;
+
+    public ServidorSimulacao(Configuracao config) {
+        // como no lote: sem prompt, debug nem trace, e a saída de cada pedido é capturada
+        this.config = config.copy().verbose(false).debugMode(false).tracePath(null).saida(null);
+    }
+
+    // endereço: "stdin", "tcp:<porta>" ou "unix:<caminho>"
+    public void serve(String address) throws IOException {
+        if (address.equals("stdin")) {
+            serve(System.in, System.out);
+        } else if (address.startsWith("tcp:")) {
+            int port = Integer.parseInt(address.substring(4));
+            try (ServerSocketChannel server = ServerSocketChannel.open()) {
+                server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+                System.err.println("Servidor aguardando em " + server.getLocalAddress());
+                acceptLoop(server);
+            }
+        } else if (address.startsWith("unix:")) {
+            Path path = Path.of(address.substring(5));
+            Files.deleteIfExists(path);
+            try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+                server.bind(UnixDomainSocketAddress.of(path));
+                System.err.println("Servidor aguardando em " + path);
+                acceptLoop(server);
+            } finally {
+                Files.deleteIfExists(path);
+            }
+        } else {
+            throw new IllegalArgumentException("Endereço do servidor inválido: " + address);
+        }
+    }
+
+    private void acceptLoop(ServerSocketChannel server) throws IOException {
+        while (true) {
+            SocketChannel connection = server.accept();
+            Thread.ofVirtual().name("conexao-simulador").start(() -> {
+                try (connection) {
+                    serve(inputOf(connection), outputOf(connection));
+                } catch (IOException e) {
+                    System.err.println("Erro na conexão: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    // atende uma conexão até FIM ou fim da entrada; volta só depois de todas as respostas
+    public void serve(InputStream in, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        ReentrantLock writing = new ReentrantLock();
+        try (ExecutorService jobs = Executors.newVirtualThreadPerTaskExecutor()) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String request = line.trim();
+                if (request.isEmpty()) {
+                    continue;
+                }
+                if (request.equals("FIM")) {
+                    break;
+                }
+                jobs.execute(() -> reply(writer, writing, handle(request)));
+            }
+        }
+    }
+
+    // trava explícita em vez de synchronized: uma virtual thread bloqueada na escrita dentro de
+    // synchronized prende a thread portadora no JDK 21
+    private static void reply(Writer writer, ReentrantLock writing, String response) {
+        writing.lock();
+        try {
+            writer.write(response);
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            // cliente foi embora; os outros pedidos seguem
+        } finally {
+            writing.unlock();
+        }
+    }
+
+    // processa uma linha do protocolo e devolve a linha de resposta
+    public String handle(String request) {
+        String[] tokens = request.split("\\s+");
+        if (tokens[0].equals("PING")) {
+            return "PONG";
+        }
+        if (!tokens[0].equals("EXEC") || tokens.length < 2) {
+            return "ERRO - Pedido inválido: " + tokens[0];
+        }
+        String id = tokens[1];
+        try {
+            Configuracao jobConfig = config.copy();
+            byte[] image = null;
+            String path = null;
+            for (int i = 2; i < tokens.length; i++) {
+                int separator = tokens[i].indexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Opção sem valor: " + tokens[i]);
+                }
+                String key = tokens[i].substring(0, separator);
+                String value = tokens[i].substring(separator + 1);
+                switch (key) {
+                    case "imagem":
+                        image = Base64.getDecoder().decode(value);
+                        break;
+                    case "arquivo":
+                        path = value;
+                        break;
+                    default:
+                        applyOption(jobConfig, key, value);
+                        break;
+                }
+            }
+
+            ResultadoTarefa result;
+            if (image != null) {
+                result = ExecutorLote.runJob(id, image, jobConfig);
+            } else if (path != null) {
+                result = ExecutorLote.runJob(path, jobConfig);
+            } else {
+                throw new IllegalArgumentException("Pedido sem imagem nem arquivo");
+            }
+            return format(id, result);
+        } catch (RuntimeException e) {
+            // qualquer falha vira resposta: sem ela o cliente esperaria o id para sempre
+            return "ERRO " + id + " " + (e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    private static void applyOption(Configuracao config, String key, String value) {
+        switch (key) {
+            case "ciclos":
+                config.maxCycles(Long.parseLong(value));
+                break;
+            case "tempo":
+                config.maxTimeMillis(Long.parseLong(value));
+                break;
+            case "motor":
+                config.motor(Motor.valueOf(value.toUpperCase()));
+                break;
+            case "relogio":
+                config.clock(ModoRelogio.valueOf(value.toUpperCase()));
+                break;
+            case "frequencia":
+                config.clockHz(Long.parseLong(value));
+                break;
+            case "fusao":
+                config.fusion(Boolean.parseBoolean(value));
+                break;
+            case "detectar-laco":
+                config.loopDetection(Boolean.parseBoolean(value));
+                break;
+            case "memoria-bits":
+                config.addressBits(Integer.parseInt(value));
+                break;
+            case "tratador":
+                config.trapHandler(Integer.parseInt(value));
+                break;
+            default:
+                throw new IllegalArgumentException("Opção desconhecida: " + key);
+        }
+    }
+
+    private static String format(String id, ResultadoTarefa result) {
+        StringBuilder sb = new StringBuilder("OK ").append(id)
+                .append(" status=").append(result.getStatus())
+                .append(" ciclos=").append(result.getCycles())
+                .append(" pc=").append(result.getPc())
+                .append(" regs=");
+        short[] registers = result.getRegisters();
+        for (int i = 0; i < registers.length; i++) {
+            sb.append(i == 0 ? "" : ",").append(registers[i]);
+        }
+        sb.append(" tempo_ms=").append(String.format("%.3f", result.getElapsedNanos() / 1_000_000.0))
+                .append(" paginas=").append(result.getResidentPages())
+                .append(" saida=").append(encode(result.getOutput()))
+                .append(" erro=").append(encode(result.getErrorMessage() == null ? "" : result.getErrorMessage()));
+        return sb.toString();
+    }
+
+    private static String encode(String text) {
+        return Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // leitura e escrita direto no canal: os streams de Channels usam uma trava única para os
+    // dois sentidos, e uma leitura bloqueada impediria as respostas
+    private static InputStream inputOf(SocketChannel channel) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return channel.read(ByteBuffer.wrap(b, off, len));
+            }
+        };
+    }
+
+    private static OutputStream outputOf(SocketChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+// Vários núcleos (Processador com Registrador e PC próprios) executando o mesmo programa sobre
+// uma MemoriaCompartilhada, cada um na sua thread do host. Todos começam no PC 0 com os
+// registradores zerados; o guest separa o trabalho pelo número do núcleo (syscall 12) e se
+// sincroniza com as atômicas (14 a 16) e a barreira (13), no modelo descrito em MemoriaCompartilhada.
+public class SistemaMulticore {
+    private final MemoriaCompartilhada memoria;
+    private final Processador[] cores;
+    private final SaidaMemoria[] outputs;
+
+    public SistemaMulticore(MemoriaCompartilhada memoria, int cores, Configuracao config) throws ProcessorException {
+        if (cores <= 0) {
+            throw new IllegalArgumentException("Número de núcleos deve ser positivo: " + cores);
+        }
+        checkSupported(config);
+        // cada núcleo roda em silêncio e com a saída capturada; as linhas do debug de vários
+        // núcleos sairiam misturadas
+        Configuracao coreConfig = config.copy().verbose(false).debugMode(false);
+        this.memoria = memoria;
+        this.cores = new Processador[cores];
+        this.outputs = new SaidaMemoria[cores];
+        for (int core = 0; core < cores; core++) {
+            outputs[core] = new SaidaMemoria();
+            this.cores[core] = new Processador(memoria, new Registrador(), coreConfig.copy().saida(outputs[core]));
+            this.cores[core].setCoreId(core);
+        }
+    }
+
+    // opções que supõem um único núcleo, recusadas antes de qualquer núcleo rodar: detecção de
+    // laço e histórico dependem do hash e dos checkpoints da memória, que na MemoriaCompartilhada
+    // exigiriam parar todos os núcleos, e o trace tem um registro por ciclo de um só núcleo
+    public static void checkSupported(Configuracao config) {
+        if (config.isLoopDetection()) {
+            throw new IllegalArgumentException("Detecção de laço (--detectar-laco) não é suportada com vários núcleos");
+        }
+        if (config.isHistory()) {
+            throw new IllegalArgumentException("Histórico de execução e checkpoints não são suportados com vários núcleos");
+        }
+        if (config.getTracePath() != null) {
+            throw new IllegalArgumentException("Trace (--trace) não é suportado com vários núcleos");
+        }
+    }
+
+    public static SistemaMulticore open(String binaryPath, int cores, Configuracao config)
+            throws IOException, ProcessorException {
+        if (!binaryPath.toLowerCase().endsWith(".bin")) {
+            throw new ProcessorException("O arquivo informado não possui extensão .bin: " + binaryPath);
+        }
+        MemoriaCompartilhada memoria = new MemoriaCompartilhada(new Lib().map_binary(binaryPath),
+                config.getAddressBits());
+        return new SistemaMulticore(memoria, cores, config);
+    }
+
+    public MemoriaCompartilhada getMemoria() { return memoria; }
+    public int getCores() { return cores.length; }
+    public Processador getCore(int core) { return cores[core]; }
+
+    // roda todos os núcleos até o fim; o resultado de cada um sai na ordem dos núcleos
+    public List<ResultadoTarefa> run() throws InterruptedException {
+        ResultadoTarefa[] results = new ResultadoTarefa[cores.length];
+        Thread[] threads = new Thread[cores.length];
+        for (int core = 0; core < cores.length; core++) {
+            int id = core;
+            threads[core] = Thread.ofPlatform().name("nucleo-" + core).start(() -> results[id] = runCore(id));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return List.of(results);
+    }
+
+    private ResultadoTarefa runCore(int core) {
+        long start = System.nanoTime();
+        Processador processador = cores[core];
+        StatusExecucao status;
+        while ((status = processador.runUntilHalt()) == StatusExecucao.AGUARDANDO) {
+            LockSupport.parkNanos(processador.getWakeUpDelayNanos());
+        }
+        return new ResultadoTarefa("nucleo " + core, status, processador.getCycleCount(), processador.getPc(),
+                processador.getRegistrador().toArray(), System.nanoTime() - start,
+                processador.getErrorMessage(), outputs[core].getText(), memoria.getResidentPages(),
+                processador.getPipeline(), processador.getCache(), processador.getPreditor());
+    }
+
+}
@@ -0,0 +1,10 @@
+public enum StatusExecucao {
+    EXECUTANDO,
+    AGUARDANDO,     // sleep no relógio AGENDADO; retomar com runUntilHalt depois de getWakeUpDelayNanos()
+    PAUSADO,        // breakpoint ou watchpoint; retomar com runUntilHalt
+    ENCERRADO,      // syscall 0
+    ERRO,
+    LIMITE_CICLOS,
+    TEMPO_ESGOTADO,
+    LACO_INFINITO   // estado da máquina repetido em um desvio para trás
+}
@@ -0,0 +1,7 @@
+public enum TipoPreditor {
+    NAO_TOMADO, // estático: sempre segue em frente
+    UM_BIT,     // último resultado de cada desvio
+    DOIS_BITS,  // contador saturante de 2 bits por desvio
+    GSHARE,     // contadores de 2 bits indexados por PC xor histórico global
+    BTB         // buffer de alvos pequeno com contador de 2 bits; fora dele prevê não tomado
+}
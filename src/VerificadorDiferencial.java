@@ -0,0 +1,264 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+// Executa o mesmo programa no interpretador de referência (executeCycle a cada ciclo, sem fusão
+// nem blocos) e num motor candidato descrito por uma Configuracao, comparando status, ciclo, PC,
+// registradores, estado de falhas e as páginas de memória escritas por qualquer um dos dois.
+//
+// Blocos e superinstruções não têm estado intermediário, então o candidato avança uma unidade de
+// cada vez (Processador.runUnit) e a referência o alcança no mesmo ciclo antes de comparar. As
+// páginas escritas são as que o copy-on-write da Memoria copiou desde a última comparação. Os
+// dois lados usam o relógio VIRTUAL e saída capturada, para que time e sleep sejam determinísticos.
+//
+// Uma instância guarda as contagens da última verificação; use uma por thread.
+public class VerificadorDiferencial {
+    public static final int CONTEXT_CYCLES = 16;
+    private static final int REBASE_INTERVAL = 1024;
+
+    private final Configuracao reference;
+    private final Configuracao candidate;
+    private final ModoVerificacao mode;
+    private long cycles;
+    private long comparisons;
+
+    public static final class Divergencia {
+        public enum Tipo { EXCECAO, STATUS, PC, REGISTRADOR, FALHA, MEMORIA, SAIDA }
+
+        private final Tipo tipo;
+        private final String detail;
+        private final long lastAgreedCycle;
+        private final StatusExecucao referenceStatus;
+        private final StatusExecucao candidateStatus;
+        private final long referenceCycle;
+        private final long candidateCycle;
+        private final int referencePc;
+        private final int candidatePc;
+        private final short[] referenceRegisters;
+        private final short[] candidateRegisters;
+        private final int address; // endereço de dados, só em MEMORIA
+        private List<String> context = List.of();
+
+        private Divergencia(Tipo tipo, String detail, long lastAgreedCycle, Processador referencia,
+                            Processador candidata, int address) {
+            this.tipo = tipo;
+            this.detail = detail;
+            this.lastAgreedCycle = lastAgreedCycle;
+            this.referenceStatus = referencia.getStatus();
+            this.candidateStatus = candidata.getStatus();
+            this.referenceCycle = referencia.getCycleCount();
+            this.candidateCycle = candidata.getCycleCount();
+            this.referencePc = referencia.getPc();
+            this.candidatePc = candidata.getPc();
+            this.referenceRegisters = referencia.getRegistrador().toArray();
+            this.candidateRegisters = candidata.getRegistrador().toArray();
+            this.address = address;
+        }
+
+        public Tipo getTipo() { return tipo; }
+        public String getDetail() { return detail; }
+        public long getCycle() { return candidateCycle; }
+        public long getLastAgreedCycle() { return lastAgreedCycle; }
+        public int getReferencePc() { return referencePc; }
+        public int getCandidatePc() { return candidatePc; }
+        public short[] getReferenceRegisters() { return referenceRegisters.clone(); }
+        public short[] getCandidateRegisters() { return candidateRegisters.clone(); }
+        public int getAddress() { return address; }
+        // últimas instruções executadas pela referência até a divergência; as marcadas com ">"
+        // vieram depois da última comparação igual
+        public List<String> getContext() { return context; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Divergência (").append(tipo).append(") no ciclo ").append(candidateCycle)
+                    .append(", última comparação igual no ciclo ").append(lastAgreedCycle).append(": ")
+                    .append(detail).append('\n');
+            sb.append(String.format("  referência: %-14s ciclo %d, pc %d, regs %s%n", referenceStatus,
+                    referenceCycle, referencePc, Arrays.toString(referenceRegisters)));
+            sb.append(String.format("  candidato:  %-14s ciclo %d, pc %d, regs %s%n", candidateStatus,
+                    candidateCycle, candidatePc, Arrays.toString(candidateRegisters)));
+            if (!context.isEmpty()) {
+                sb.append("  últimas instruções da referência:\n");
+                for (String line : context) {
+                    sb.append("  ").append(line).append('\n');
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    public VerificadorDiferencial(Configuracao candidate, ModoVerificacao mode) {
+        Configuracao base = candidate.copy().verbose(false).debugMode(false).tracePath(null).history(false)
+                .clock(ModoRelogio.VIRTUAL).maxTimeMillis(0);
+        this.candidate = base;
+        // a referência não precisa dos modelos de temporização nem do cache de programas
+        this.reference = base.copy().motor(Motor.INTERPRETADOR).fusion(false).programCache(null)
+                .profiling(false).pipeline(false).cache(null).predictor(null);
+        this.mode = mode;
+    }
+
+    // programa com os registradores e as palavras de dados (a partir do endereço 0) iniciais, null
+    // para zeros; devolve null quando as duas execuções coincidem
+    public Divergencia verify(short[] program, short[] registers, short[] data) throws ProcessorException {
+        return verify(load(program, data), load(program, data), registers);
+    }
+
+    // as duas memórias devem ter o mesmo conteúdo e não ser usadas por outra execução
+    public Divergencia verify(Memoria referenceMemory, Memoria candidateMemory, short[] registers)
+            throws ProcessorException {
+        if (referenceMemory.firstDifference(candidateMemory, null, null) != -1
+                || referenceMemory.getInstructionCount() != candidateMemory.getInstructionCount()) {
+            throw new IllegalArgumentException("As memórias de referência e do candidato começam diferentes");
+        }
+        SaidaMemoria referenceOutput = new SaidaMemoria();
+        SaidaMemoria candidateOutput = new SaidaMemoria();
+        Processador referencia = new Processador(referenceMemory, registers(registers),
+                reference.copy().saida(referenceOutput));
+        Processador candidata = new Processador(candidateMemory, registers(registers),
+                candidate.copy().saida(candidateOutput));
+        AnaliseBlocos analise = mode == ModoVerificacao.BLOCO
+                ? new AnaliseBlocos(new ProgramaDecodificado(candidateMemory)) : null;
+        Processador.Checkpoint start = referencia.checkpoint();
+        Memoria.Checkpoint referenceBase = referenceMemory.checkpoint();
+        Memoria.Checkpoint candidateBase = candidateMemory.checkpoint();
+
+        cycles = 0;
+        comparisons = 0;
+        long agreed = 0;
+        boolean stopped;
+        do {
+            try {
+                stopped = candidata.runUnit() != StatusExecucao.EXECUTANDO;
+            } catch (RuntimeException e) {
+                referencia.runUntilCycle(candidata.getCycleCount());
+                return withContext(new Divergencia(Divergencia.Tipo.EXCECAO, "o candidato lançou " + e, agreed,
+                        referencia, candidata, -1), referencia, start);
+            }
+            if (!stopped && analise != null && !isBlockStart(analise, candidata.getPc())) {
+                continue;
+            }
+            referencia.runUntilCycle(candidata.getCycleCount());
+            comparisons++;
+            Divergencia divergencia = compare(referencia, candidata, referenceMemory, candidateMemory,
+                    referenceBase, candidateBase, agreed);
+            if (divergencia != null) {
+                return withContext(divergencia, referencia, start);
+            }
+            // um novo checkpoint faz a próxima escrita de cada página copiá-la; comparar de novo as
+            // poucas páginas quentes sai mais barato que copiá-las a cada comparação
+            if (comparisons % REBASE_INTERVAL == 0
+                    && (referenceMemory.writtenSince(referenceBase) || candidateMemory.writtenSince(candidateBase))) {
+                referenceBase = referenceMemory.checkpoint();
+                candidateBase = candidateMemory.checkpoint();
+            }
+            agreed = candidata.getCycleCount();
+        } while (!stopped);
+        cycles = agreed;
+
+        String referenceText = referenceOutput.getText();
+        String candidateText = candidateOutput.getText();
+        if (!referenceText.equals(candidateText)) {
+            return withContext(new Divergencia(Divergencia.Tipo.SAIDA, "saída " + quote(referenceText)
+                    + " na referência, " + quote(candidateText) + " no candidato", agreed, referencia, candidata, -1),
+                    referencia, start);
+        }
+        if (!Objects.equals(referencia.getErrorMessage(), candidata.getErrorMessage())) {
+            return withContext(new Divergencia(Divergencia.Tipo.STATUS, "erro \"" + referencia.getErrorMessage()
+                    + "\" na referência, \"" + candidata.getErrorMessage() + "\" no candidato", agreed, referencia,
+                    candidata, -1), referencia, start);
+        }
+        return null;
+    }
+
+    // ciclos executados e comparações feitas na última verificação sem divergência
+    public long getCycles() { return cycles; }
+    public long getComparisons() { return comparisons; }
+
+    private static Divergencia compare(Processador referencia, Processador candidata, Memoria referenceMemory,
+                                       Memoria candidateMemory, Memoria.Checkpoint referenceBase,
+                                       Memoria.Checkpoint candidateBase, long agreed) {
+        if (referencia.getCycleCount() != candidata.getCycleCount() || referencia.getStatus() != candidata.getStatus()) {
+            return new Divergencia(Divergencia.Tipo.STATUS, referencia.getStatus() + " no ciclo "
+                    + referencia.getCycleCount() + " na referência, " + candidata.getStatus() + " no ciclo "
+                    + candidata.getCycleCount() + " no candidato", agreed, referencia, candidata, -1);
+        }
+        if (referencia.getPc() != candidata.getPc()) {
+            return new Divergencia(Divergencia.Tipo.PC, "pc " + referencia.getPc() + " na referência, "
+                    + candidata.getPc() + " no candidato", agreed, referencia, candidata, -1);
+        }
+        for (int index = 0; index < 8; index++) {
+            short expected = referencia.getRegistrador().get(index);
+            short actual = candidata.getRegistrador().get(index);
+            if (expected != actual) {
+                return new Divergencia(Divergencia.Tipo.REGISTRADOR, "R" + index + " = " + expected
+                        + " na referência, " + actual + " no candidato", agreed, referencia, candidata, -1);
+            }
+        }
+        if (referencia.getFaultCode() != candidata.getFaultCode() || referencia.getFaultArg() != candidata.getFaultArg()
+                || referencia.getFaultPc() != candidata.getFaultPc()
+                || referencia.getTrapCount() != candidata.getTrapCount()) {
+            return new Divergencia(Divergencia.Tipo.FALHA, "falha " + describeFault(referencia)
+                    + " na referência, " + describeFault(candidata) + " no candidato", agreed, referencia, candidata, -1);
+        }
+        int address = referenceMemory.firstDifference(candidateMemory, referenceBase, candidateBase);
+        if (address != -1) {
+            return new Divergencia(Divergencia.Tipo.MEMORIA, "MEM[" + address + "] = "
+                    + (short) referenceMemory.tryReadData(address) + " na referência, "
+                    + (short) candidateMemory.tryReadData(address) + " no candidato", agreed, referencia, candidata,
+                    address);
+        }
+        return null;
+    }
+
+    // reexecuta a referência desde o início até a divergência, guardando as últimas instruções
+    private static Divergencia withContext(Divergencia divergencia, Processador referencia,
+                                           Processador.Checkpoint start) {
+        long end = divergencia.referenceCycle;
+        referencia.restore(start);
+        referencia.runUntilCycle(Math.max(0, end - CONTEXT_CYCLES));
+        List<String> context = new ArrayList<>();
+        while (referencia.getStatus() == StatusExecucao.EXECUTANDO && referencia.getCycleCount() < end) {
+            long cycle = referencia.getCycleCount() + 1;
+            int pc = referencia.getPc();
+            int raw = referencia.getMemoria().tryReadInstruction(pc);
+            String instruction = raw == Memoria.FAULT ? "(fora do programa)"
+                    : String.format("%-9s %s", new Instrucao((short) raw).getMnemonic(), new Instrucao((short) raw));
+            context.add(String.format("%s ciclo %d  pc %d  %s", cycle > divergencia.lastAgreedCycle ? ">" : " ",
+                    cycle, pc, instruction));
+            referencia.runUntilCycle(cycle);
+        }
+        divergencia.context = List.copyOf(context);
+        return divergencia;
+    }
+
+    private static boolean isBlockStart(AnaliseBlocos analise, int pc) {
+        return pc < 0 || pc >= analise.size() || analise.isLeader(pc);
+    }
+
+    private Memoria load(short[] program, short[] data) throws ProcessorException {
+        Memoria memoria = new Memoria(program, candidate.getAddressBits());
+        for (int address = 0; data != null && address < data.length; address++) {
+            memoria.writeData(address, data[address]);
+        }
+        return memoria;
+    }
+
+    private static Registrador registers(short[] values) {
+        Registrador registrador = new Registrador();
+        if (values != null) {
+            registrador.load(values);
+        }
+        return registrador;
+    }
+
+    private static String describeFault(Processador processador) {
+        return "(código " + processador.getFaultCode() + ", argumento " + processador.getFaultArg() + ", pc "
+                + processador.getFaultPc() + ", desvios " + processador.getTrapCount() + ")";
+    }
+
+    private static String quote(String text) {
+        return "\"" + text.replace("\n", "\\n") + "\"";
+    }
+}
@@ -0,0 +1,63 @@
+import com.sun.management.ThreadMXBean;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+// O laço quente não pode alocar por ciclo: depois do aquecimento, uma fatia longa de
+// runUntilCycle deve alocar só uma quantidade fixa, bem menor que um byte por ciclo
+public class TesteAlocacao {
+    private static final long WARMUP_CYCLES = 5_000_000;
+    private static final long MEASURED_CYCLES = 20_000_000;
+    private static final long TOLERANCE_BYTES = 16 * 1024;
+
+    // laço infinito com ALU, STORE/LOAD, print_int, CMP + JUMP_COND e MOV + ADD
+    private static final short[] PROGRAM = {
+            Instrucao.encodeI(3, 1, 0),       // 0: MOV R1, 0
+            Instrucao.encodeI(3, 2, 1),       // 1: MOV R2, 1
+            Instrucao.encodeR(0, 1, 1, 2),    // 2: ADD R1, R1, R2
+            Instrucao.encodeI(3, 3, 5),       // 3: MOV R3, 5
+            Instrucao.encodeR(16, 0, 3, 1),   // 4: STORE MEM[R3] = R1
+            Instrucao.encodeR(15, 4, 3, 0),   // 5: LOAD R4 = MEM[R3]
+            Instrucao.encodeI(3, 0, 3),       // 6: MOV R0, 3
+            Instrucao.encodeR(63, 0, 0, 0),   // 7: SYSCALL print_int
+            Instrucao.encodeR(4, 5, 4, 1),    // 8: CMP_EQ R5, R4, R1
+            Instrucao.encodeI(1, 5, 2),       // 9: JUMP_COND R5, 2
+    };
+
+    public static void main(String[] args) throws Exception {
+        ThreadMXBean threads = threadBean();
+        if (threads == null) {
+            System.out.println("TesteAlocacao: ignorado (contagem de alocação indisponível nesta JVM)");
+            return;
+        }
+        check(threads, "interpretador", new Configuracao().motor(Motor.INTERPRETADOR).fusion(false));
+        check(threads, "interpretador com fusão", new Configuracao().motor(Motor.INTERPRETADOR).fusion(true));
+        check(threads, "blocos", new Configuracao().motor(Motor.BLOCOS));
+        System.out.println("TesteAlocacao: ok");
+    }
+
+    private static ThreadMXBean threadBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    private static void check(ThreadMXBean threads, String name, Configuracao config) throws Exception {
+        Processador processador = new Processador(new Memoria(PROGRAM), new Registrador(),
+                config.verbose(false).maxCycles(Long.MAX_VALUE)
+                        .saida(new SaidaBufferizada(OutputStream.nullOutputStream())));
+        Testes.checkEquals(StatusExecucao.EXECUTANDO, processador.runUntilCycle(WARMUP_CYCLES), name + ": aquecimento");
+
+        long thread = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        StatusExecucao status = processador.runUntilCycle(WARMUP_CYCLES + MEASURED_CYCLES);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        Testes.checkEquals(StatusExecucao.EXECUTANDO, status, name + ": status");
+        Testes.checkEquals(WARMUP_CYCLES + MEASURED_CYCLES, processador.getCycleCount(), name + ": ciclos");
+        Testes.check(allocated <= TOLERANCE_BYTES, name + ": " + allocated + " bytes alocados em "
+                + MEASURED_CYCLES + " ciclos (tolerância " + TOLERANCE_BYTES + ")");
+    }
+}
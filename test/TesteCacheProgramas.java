@@ -0,0 +1,86 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Entradas alteradas no disco não podem ser usadas: cada caso grava a entrada, a corrompe e
+// carrega de novo com um cache novo (sem as imagens residentes do anterior)
+public class TesteCacheProgramas {
+    private static final short[] PROGRAM = {
+            Instrucao.encodeI(3, 1, 5),    // 0: MOV R1, 5
+            Instrucao.encodeI(3, 2, 7),    // 1: MOV R2, 7
+            Instrucao.encodeR(0, 3, 1, 2), // 2: ADD R3, R1, R2
+            Instrucao.encodeR(4, 4, 3, 1), // 3: CMP_EQ R4, R3, R1
+            Instrucao.encodeI(1, 4, 0),    // 4: JUMP_COND R4, 0
+            Instrucao.encodeI(3, 0, 0),    // 5: MOV R0, 0
+            Instrucao.encodeR(63, 0, 0, 0) // 6: SYSCALL exit
+    };
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("cache-programas");
+        try {
+            entradaValidaEhAcerto(directory);
+            corpoAlteradoEhErro(directory);
+            arquivoTruncadoEhErro(directory);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        System.out.println("TesteCacheProgramas: ok");
+    }
+
+    private static void entradaValidaEhAcerto(Path directory) throws Exception {
+        load(directory, 0, 1, 0);
+        load(directory, 1, 0, 0);
+    }
+
+    private static void corpoAlteradoEhErro(Path directory) throws Exception {
+        Path file = entry(directory);
+        byte[] image = Files.readAllBytes(file);
+        image[48] ^= 0x01; // primeira palavra de raw: MOV R1, 5 vira MOV R1, 4
+        Files.write(file, image);
+        rewritten(directory, file);
+    }
+
+    private static void arquivoTruncadoEhErro(Path directory) throws Exception {
+        Path file = entry(directory);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+        rewritten(directory, file);
+    }
+
+    // a carga conta um erro e uma falta, analisa de novo e regrava; a seguinte volta a acertar
+    private static void rewritten(Path directory, Path file) throws Exception {
+        load(directory, 0, 1, 1);
+        Testes.check(Files.exists(file), "entrada regravada");
+        load(directory, 1, 0, 0);
+    }
+
+    private static void load(Path directory, long hits, long misses, long errors) throws Exception {
+        CacheProgramas cache = new CacheProgramas(directory);
+        CacheProgramas.Imagem imagem = cache.load(new Memoria(PROGRAM));
+        Testes.checkEquals(hits, cache.getHits(), "acertos");
+        Testes.checkEquals(misses, cache.getMisses(), "faltas");
+        Testes.checkEquals(errors, cache.getErrors(), "erros");
+        Testes.checkEquals(PROGRAM.length, imagem.programa.size(), "tamanho do programa");
+        for (int pc = 0; pc < PROGRAM.length; pc++) {
+            Testes.checkEquals(PROGRAM[pc], imagem.programa.getRaw(pc), "instrução em " + pc);
+        }
+    }
+
+    private static Path entry(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> entries = files.toList();
+            Testes.checkEquals(1, entries.size(), "entradas no diretório");
+            return entries.get(0);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// O trace decodificado deve ser exatamente o texto de --debug (System.out e System.err juntos)
+// para um programa que passa por desvios, falhas desviadas ao tratador e uma falha final
+public class TesteDecodificadorTrace {
+    private static final short[] PROGRAM = {
+            Instrucao.encodeI(3, 1, 7),     // 0: MOV R1, 7
+            Instrucao.encodeI(3, 0, 8),     // 1: MOV R0, 8
+            Instrucao.encodeR(63, 0, 0, 0), // 2: SYSCALL (tratador em 7)
+            Instrucao.encodeI(3, 2, 0),     // 3: MOV R2, 0
+            Instrucao.encodeR(3, 3, 1, 2),  // 4: DIV R3, R1, R2 -> tratador
+            Instrucao.encodeI(0, 0, 0),     // 5: JUMP 0
+            Instrucao.encodeI(0, 0, 0),     // 6: JUMP 0
+            Instrucao.encodeI(3, 0, 9),     // 7: MOV R0, 9
+            Instrucao.encodeR(63, 0, 0, 0), // 8: SYSCALL (R1 = código da falha)
+            Instrucao.encodeI(3, 5, 1),     // 9: MOV R5, 1
+            Instrucao.encodeR(4, 6, 1, 5),  // 10: CMP_EQ R6, R1, R5
+            Instrucao.encodeI(1, 6, 13),    // 11: JUMP_COND R6, 13 (tomado)
+            Instrucao.encodeI(0, 0, 0),     // 12: JUMP 0
+            Instrucao.encodeR(5, 6, 1, 5),  // 13: CMP_NEQ R6, R1, R5
+            Instrucao.encodeI(1, 6, 0),     // 14: JUMP_COND R6, 0 (não tomado)
+            Instrucao.encodeR(1, 4, 2, 5),  // 15: SUB R4, R2, R5 (R4 = -1)
+            Instrucao.encodeR(16, 0, 5, 1), // 16: STORE MEM[R5] = R1
+            Instrucao.encodeI(3, 1, 21),    // 17: MOV R1, 21
+            Instrucao.encodeI(3, 0, 8),     // 18: MOV R0, 8
+            Instrucao.encodeR(63, 0, 0, 0), // 19: SYSCALL (tratador em 21)
+            Instrucao.encodeR(15, 3, 4, 0), // 20: LOAD R3, MEM[R4] -> tratador
+            Instrucao.encodeI(3, 1, 25),    // 21: MOV R1, 25
+            Instrucao.encodeI(3, 0, 8),     // 22: MOV R0, 8
+            Instrucao.encodeR(63, 0, 0, 0), // 23: SYSCALL (tratador em 25)
+            Instrucao.encodeI(0, 0, 40),    // 24: JUMP 40 -> falha de busca, tratador
+            Instrucao.encodeR(16, 0, 4, 1), // 25: STORE MEM[R4] = R1 -> erro
+    };
+
+    public static void main(String[] args) throws Exception {
+        Path trace = Files.createTempFile("decodificador", ".trace");
+        try {
+            String debug = debugOutput(trace);
+            ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+            try (PrintStream out = new PrintStream(decoded, true, StandardCharsets.UTF_8)) {
+                DecodificadorTrace.decode(trace.toString(), out);
+            }
+            Testes.check(debug.contains("desviando para o tratador em 25"), "falha de busca desviada:\n" + debug);
+            Testes.check(debug.contains("Erro no ciclo 24: Erro no acesso à memória no endereço -1: "
+                    + "Endereço de dados inválido para escrita: -1"), "erro final:\n" + debug);
+            Testes.checkEquals(debug, decoded.toString(StandardCharsets.UTF_8), "trace decodificado");
+        } finally {
+            Files.deleteIfExists(trace);
+        }
+        loteRecusaTrace();
+        System.out.println("TesteDecodificadorTrace: ok");
+    }
+
+    // com --lote todos os programas gravariam no mesmo arquivo: a opção é recusada, não ignorada
+    private static void loteRecusaTrace() {
+        try {
+            new ExecutorLote(new Configuracao().tracePath("lote.trace"), 1, false);
+        } catch (IllegalArgumentException e) {
+            Testes.check(e.getMessage().startsWith("Trace"), e.getMessage());
+            return;
+        }
+        throw new AssertionError("--trace aceito com --lote");
+    }
+
+    private static String debugOutput(Path trace) throws Exception {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        try (PrintStream capture = new PrintStream(captured, true, StandardCharsets.UTF_8)) {
+            System.setOut(capture);
+            System.setErr(capture);
+            Processador processador = new Processador(new Memoria(PROGRAM), new Registrador(),
+                    new Configuracao().debugMode(true).tracePath(trace.toString()).saida(new SaidaMemoria()));
+            Testes.checkEquals(StatusExecucao.ERRO, processador.runUntilHalt(), "status");
+            Testes.checkEquals(3L, processador.getTrapCount(), "falhas desviadas");
+        } finally {
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+        return captured.toString(StandardCharsets.UTF_8);
+    }
+}
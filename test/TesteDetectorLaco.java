@@ -0,0 +1,36 @@
+public class TesteDetectorLaco {
+    public static void main(String[] args) throws Exception {
+        tratadorRearmadoNaoEhLaco();
+        lacoSemSaidaEhDetectado();
+        System.out.println("TesteDetectorLaco: ok");
+    }
+
+    // o estado em PC 1 se repete, mas na segunda vez o tratador já foi consumido: a divisão
+    // encerra com erro em vez de repetir o laço
+    private static void tratadorRearmadoNaoEhLaco() throws Exception {
+        short[] program = {
+                Instrucao.encodeI(0, 0, 2),    // 0: JUMP 2
+                Instrucao.encodeR(3, 2, 1, 1), // 1: DIV R2, R1, R1 (R1 = 0)
+                Instrucao.encodeI(0, 0, 1),    // 2: JUMP 1
+                Instrucao.encodeI(0, 0, 1),    // 3: JUMP 1 (tratador)
+        };
+        for (boolean detection : new boolean[] {false, true}) {
+            Processador processador = Testes.processador(program,
+                    new Configuracao().trapHandler(3).loopDetection(detection));
+            Testes.checkEquals(StatusExecucao.ERRO, processador.runUntilHalt(), "status com detecção " + detection);
+            Testes.checkEquals(5L, processador.getCycleCount(), "ciclos com detecção " + detection);
+            Testes.check(processador.getErrorMessage().contains("Divisão por zero"), processador.getErrorMessage());
+        }
+    }
+
+    private static void lacoSemSaidaEhDetectado() throws Exception {
+        short[] program = {
+                Instrucao.encodeI(3, 1, 5), // 0: MOV R1, 5
+                Instrucao.encodeI(0, 0, 0), // 1: JUMP 0
+        };
+        Processador processador = Testes.processador(program, new Configuracao().loopDetection(true));
+        Testes.checkEquals(StatusExecucao.LACO_INFINITO, processador.runUntilHalt(), "status");
+        Testes.checkEquals(0, processador.getLoopStartPc(), "início do laço");
+        Testes.checkEquals(1, processador.getLoopEndPc(), "fim do laço");
+    }
+}
@@ -0,0 +1,24 @@
+// Passada curta do FuzzerDiferencial em cada motor, com e sem fusão, nos dois modos de
+// verificação: programas aleatórios (com falhas, syscalls e desvios para fora do programa) devem
+// terminar no mesmo estado que no interpretador de referência
+public class TesteFuzzDiferencial {
+    private static final int CASES = 200;
+    private static final long SEED = 2025;
+
+    public static void main(String[] args) throws Exception {
+        for (Motor motor : Motor.values()) {
+            for (boolean fusion : new boolean[] {true, false}) {
+                for (ModoVerificacao mode : ModoVerificacao.values()) {
+                    Configuracao config = new Configuracao().motor(motor).fusion(fusion);
+                    FuzzerDiferencial.Resultado result = new FuzzerDiferencial(config, mode, 2, SEED).run(CASES);
+                    String name = motor + (fusion ? " com fusão" : " sem fusão") + ", " + mode;
+                    Testes.check(result.getDivergencia() == null, name + ", caso "
+                            + (result.getFailingCase() == null ? "?" : result.getFailingCase().index) + ":\n"
+                            + result.getDivergencia());
+                    Testes.checkEquals((long) CASES, result.getPrograms(), name + ": programas verificados");
+                }
+            }
+        }
+        System.out.println("TesteFuzzDiferencial: ok");
+    }
+}
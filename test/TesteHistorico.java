@@ -0,0 +1,110 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Configuracao.history: voltar no tempo (stepBack, goToCycle) deve deixar registradores, memória
+// e PC iguais aos de uma execução nova parada no mesmo ciclo, inclusive depois que o registro
+// descartou os blocos mais antigos
+public class TesteHistorico {
+    private static final int ADDRESS = 5;
+    private static final long LONG_RUN = 400_000;
+
+    // R3 conta as voltas e cada volta grava R3 em MEM[5]: escrita de registrador nos ciclos
+    // 3k e de memória nos ciclos 3k + 1 (numerados como getCycleCount() ao fim de cada um)
+    private static final short[] COUNTER = {
+            Instrucao.encodeI(3, 1, 1),         // 0: MOV R1, 1
+            Instrucao.encodeI(3, 5, ADDRESS),   // 1: MOV R5, 5
+            Instrucao.encodeR(0, 3, 3, 1),      // 2: ADD R3, R3, R1
+            Instrucao.encodeR(16, 0, 5, 3),     // 3: STORE MEM[R5], R3
+            Instrucao.encodeI(0, 0, 2),         // 4: JUMP 2
+    };
+
+    public static void main(String[] args) throws Exception {
+        stepBackRestauraEstado();
+        goToCycleParaTras();
+        ultimaEscrita();
+        registroAlemDoLimite();
+        System.out.println("TesteHistorico: ok");
+    }
+
+    private static void stepBackRestauraEstado() throws Exception {
+        Processador processador = processador(new Configuracao());
+        List<String> states = new ArrayList<>();
+        for (long cycle = 0; cycle <= 20; cycle++) {
+            processador.runUntilCycle(cycle);
+            states.add(state(processador));
+        }
+        for (int cycle = 19; cycle >= 0; cycle--) {
+            Testes.check(processador.stepBack(), "stepBack recusado no ciclo " + (cycle + 1));
+            Testes.checkEquals(states.get(cycle), state(processador), "stepBack para o ciclo " + cycle);
+        }
+        Testes.check(!processador.stepBack(), "stepBack antes do ciclo 0");
+    }
+
+    // pelo registro, quando o alvo está mais perto do fim que de um snapshot, e reexecutando
+    // a partir do snapshot anterior no caso contrário
+    private static void goToCycleParaTras() throws Exception {
+        Processador processador = processador(new Configuracao().historySnapshotInterval(100));
+        processador.runUntilCycle(1000);
+        for (long target : new long[] {990, 250, 201, 0}) {
+            Testes.check(processador.goToCycle(target), "goToCycle(" + target + ")");
+            Testes.checkEquals(reference(target), state(processador), "goToCycle(" + target + ")");
+        }
+        // o futuro é reexecutado igual
+        Testes.check(processador.goToCycle(700), "goToCycle(700) depois de voltar");
+        Testes.checkEquals(reference(700), state(processador), "goToCycle(700) depois de voltar");
+    }
+
+    private static void ultimaEscrita() throws Exception {
+        Processador processador = processador(new Configuracao());
+        processador.runUntilCycle(20);
+        Testes.checkEquals(19L, processador.lastMemoryWrite(ADDRESS), "última escrita em MEM[5]");
+        Testes.checkEquals(-1L, processador.lastMemoryWrite(ADDRESS + 1), "MEM[6] nunca escrito");
+        Testes.checkEquals(18L, processador.lastRegisterWrite(3), "última escrita em R3");
+        Testes.checkEquals(1L, processador.lastRegisterWrite(1), "última escrita em R1");
+        Testes.checkEquals(-1L, processador.lastRegisterWrite(4), "R4 nunca escrito");
+        processador.stepBack(2);
+        Testes.checkEquals(16L, processador.lastMemoryWrite(ADDRESS), "última escrita em MEM[5] após stepBack");
+    }
+
+    // com maxEntries no mínimo, uma execução longa descarta os blocos mais antigos: o que sobra
+    // continua sendo desfeito corretamente e o trecho descartado é alcançado pelos snapshots
+    private static void registroAlemDoLimite() throws Exception {
+        Processador processador = processador(new Configuracao()
+                .historyMaxEntries(HistoricoExecucao.MIN_ENTRIES).historySnapshotInterval(50_000));
+        processador.runUntilCycle(LONG_RUN);
+        HistoricoExecucao historico = processador.getHistorico();
+        long oldest = historico.getOldestCycle();
+        Testes.check(oldest > 0, "nenhum bloco descartado em " + LONG_RUN + " ciclos");
+        Testes.check(historico.getEntryCount() <= HistoricoExecucao.MIN_ENTRIES,
+                historico.getEntryCount() + " entradas no registro");
+        Testes.checkEquals(-1L, processador.lastRegisterWrite(1), "escrita de R1 já descartada");
+        Testes.checkEquals(LONG_RUN - (LONG_RUN - 1) % 3, processador.lastMemoryWrite(ADDRESS),
+                "última escrita em MEM[5]");
+
+        Testes.checkEquals(LONG_RUN - oldest, processador.stepBack(Long.MAX_VALUE), "ciclos desfeitos");
+        Testes.checkEquals(reference(oldest), state(processador), "início do registro");
+        Testes.check(!processador.stepBack(), "stepBack antes do início do registro");
+
+        long target = oldest - 1234;
+        Testes.check(processador.goToCycle(target), "goToCycle(" + target + ") antes do registro");
+        Testes.checkEquals(reference(target), state(processador), "goToCycle(" + target + ") antes do registro");
+    }
+
+    private static Processador processador(Configuracao config) throws ProcessorException {
+        return Testes.processador(COUNTER, config.history(true).maxCycles(10 * LONG_RUN));
+    }
+
+    // estado de uma execução nova, sem histórico, parada no ciclo
+    private static String reference(long cycle) throws ProcessorException {
+        Processador processador = Testes.processador(COUNTER, new Configuracao().maxCycles(10 * LONG_RUN));
+        processador.runUntilCycle(cycle);
+        return state(processador);
+    }
+
+    private static String state(Processador processador) {
+        return "ciclo " + processador.getCycleCount() + " pc " + processador.getPc() + " "
+                + Arrays.toString(processador.getRegistrador().toArray())
+                + " MEM[5] " + processador.getMemoria().tryReadData(ADDRESS);
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Cada lane de ExecucaoLockstep deve terminar exatamente como um Processador escalar com as
+// mesmas entradas (status, ciclos, PC, registradores, saída e erro), tanto as que ficam em
+// lockstep até o fim quanto as que saem para o escalar no meio (falha, sleep/time, syscall ou
+// instrução desconhecida)
+public class TesteLockstep {
+    private static final int PROGRAMS = 300;
+
+    public static void main(String[] args) throws Exception {
+        SplittableRandom rnd = new SplittableRandom(2025);
+        long lanes = 0;
+        long scalar = 0;
+        long dispatches = 0;
+        for (int index = 0; index < PROGRAMS; index++) {
+            short[] program = program(rnd);
+            int count = 1 + rnd.nextInt(40);
+            short[][] registers = new short[count][8];
+            int[] addresses = new int[count];
+            short[] values = new short[count];
+            for (int lane = 0; lane < count; lane++) {
+                for (int r = 0; r < 8; r++) {
+                    registers[lane][r] = (short) (rnd.nextInt(6) - 1);
+                }
+                addresses[lane] = rnd.nextInt(8);
+                values[lane] = (short) rnd.nextInt(100);
+            }
+            Configuracao config = new Configuracao().maxCycles(500 + rnd.nextInt(1500)).verbose(false)
+                    .clock(ModoRelogio.VIRTUAL);
+
+            ExecucaoLockstep lockstep = new ExecucaoLockstep(program, count, config);
+            for (int lane = 0; lane < count; lane++) {
+                lockstep.setRegisters(lane, registers[lane]);
+                lockstep.writeData(lane, addresses[lane], values[lane]);
+            }
+            List<ResultadoTarefa> results = lockstep.run();
+            for (int lane = 0; lane < count; lane++) {
+                Memoria memoria = new Memoria(program);
+                memoria.writeData(addresses[lane], values[lane]);
+                Registrador registrador = new Registrador();
+                registrador.load(registers[lane]);
+                SaidaMemoria saida = new SaidaMemoria();
+                Processador processador = new Processador(memoria, registrador, config.copy().saida(saida));
+                StatusExecucao status = processador.runUntilHalt();
+                String expected = status + " ciclo " + processador.getCycleCount() + " pc " + processador.getPc()
+                        + " " + Arrays.toString(registrador.toArray()) + " saída \"" + saida.getText()
+                        + "\" erro " + processador.getErrorMessage();
+                ResultadoTarefa result = results.get(lane);
+                String actual = result.getStatus() + " ciclo " + result.getCycles() + " pc " + result.getPc()
+                        + " " + Arrays.toString(result.getRegisters()) + " saída \"" + result.getOutput()
+                        + "\" erro " + result.getErrorMessage();
+                Testes.checkEquals(expected, actual, "programa " + index + ", lane " + lane);
+            }
+            lanes += count;
+            scalar += lockstep.getScalarLanes().size();
+            dispatches += lockstep.getLockstepDispatches();
+        }
+        // os dois caminhos precisam ter sido exercitados
+        Testes.check(scalar > 0 && scalar < lanes, scalar + " de " + lanes + " lanes saíram para o escalar");
+        Testes.check(dispatches > 0, "nenhuma instrução despachada em lockstep");
+        System.out.println("TesteLockstep: ok");
+    }
+
+    // programa aleatório curto com ALU, CMP, LOAD/STORE, desvios (inclusive para fora do
+    // programa), syscalls de R0 entre 0 e 4 e instruções desconhecidas
+    private static short[] program(SplittableRandom rnd) {
+        int length = 5 + rnd.nextInt(30);
+        short[] program = new short[length];
+        for (int pc = 0; pc < length; pc++) {
+            int rd = rnd.nextInt(8);
+            int rs1 = rnd.nextInt(8);
+            int rs2 = rnd.nextInt(8);
+            switch (rnd.nextInt(14)) {
+                case 0:
+                case 1:
+                    program[pc] = Instrucao.encodeR(rnd.nextInt(3), rd, rs1, rs2); // ADD, SUB, MUL
+                    break;
+                case 2:
+                    program[pc] = Instrucao.encodeR(3, rd, rs1, rs2); // DIV
+                    break;
+                case 3:
+                    program[pc] = Instrucao.encodeR(4 + rnd.nextInt(2), rd, rs1, rs2); // CMP_EQ, CMP_NEQ
+                    break;
+                case 4:
+                    program[pc] = Instrucao.encodeR(15, rd, rs1, rs2); // LOAD
+                    break;
+                case 5:
+                    program[pc] = Instrucao.encodeR(16, rd, rs1, rs2); // STORE
+                    break;
+                case 6:
+                case 7:
+                    program[pc] = Instrucao.encodeI(3, rd, rnd.nextInt(rnd.nextBoolean() ? 8 : 1024)); // MOV
+                    break;
+                case 8:
+                    program[pc] = Instrucao.encodeI(1, rd, rnd.nextInt(length + 1)); // JUMP_COND
+                    break;
+                case 9:
+                    program[pc] = Instrucao.encodeI(0, 0, rnd.nextInt(length + 1)); // JUMP
+                    break;
+                case 10:
+                    program[pc] = Instrucao.encodeR(63, 0, 0, 0); // SYSCALL
+                    break;
+                case 11:
+                    program[pc] = Instrucao.encodeI(3, 0, rnd.nextInt(5)); // MOV R0, serviço
+                    break;
+                case 12:
+                    program[pc] = Instrucao.encodeR(rnd.nextInt(64), rd, rs1, rs2); // opcode R qualquer
+                    break;
+                default:
+                    program[pc] = Instrucao.encodeI(2, rd, 1); // opcode I desconhecido
+                    break;
+            }
+        }
+        return program;
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Os blocos compilados pelo CompiladorBlocos devem equivaler ao interpretador. Cada caso é um
+// laço que roda mais de COMPILE_THRESHOLD voltas, com um corpo aleatório que pode falhar depois
+// da compilação (divisor que chega a zero, endereço que sai da área de dados) e, às vezes,
+// partido por um JUMP para que os dois pedaços sejam compilados como blocos sem laço
+public class TesteMotorBlocos {
+    private static final int CASES = 50;
+    private static final long MAX_CYCLES = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        compilaTodasAsInstrucoes();
+        equivaleAoInterpretador();
+        System.out.println("TesteMotorBlocos: ok");
+    }
+
+    // o compilador devolve null (e o bloco fica nas operações) quando a JVM recusa a classe:
+    // um bytecode inválido passaria despercebido pelos casos aleatórios
+    private static void compilaTodasAsInstrucoes() throws Exception {
+        short[] program = {
+                Instrucao.encodeI(3, 1, 7),     // 0: MOV
+                Instrucao.encodeR(0, 2, 1, 1),  // 1: ADD
+                Instrucao.encodeR(1, 2, 2, 1),  // 2: SUB
+                Instrucao.encodeR(2, 2, 2, 1),  // 3: MUL
+                Instrucao.encodeR(3, 2, 2, 1),  // 4: DIV
+                Instrucao.encodeR(4, 3, 2, 1),  // 5: CMP_EQ
+                Instrucao.encodeR(5, 3, 2, 1),  // 6: CMP_NEQ
+                Instrucao.encodeR(16, 0, 1, 2), // 7: STORE
+                Instrucao.encodeR(15, 4, 1, 0), // 8: LOAD
+                Instrucao.encodeI(1, 3, 0),     // 9: JUMP_COND R3, 0
+        };
+        ProgramaDecodificado programa = new ProgramaDecodificado(new Memoria(program));
+        Testes.check(CompiladorBlocos.compile(programa, 0, 9, -1) != null, "bloco sem laço não compilado");
+        Testes.check(CompiladorBlocos.compile(programa, 0, 9, 9) != null, "laço não compilado");
+    }
+
+    private static void equivaleAoInterpretador() throws Exception {
+        for (ModoVerificacao mode : ModoVerificacao.values()) {
+            for (boolean fusion : new boolean[] {true, false}) {
+                Configuracao config = new Configuracao().motor(Motor.BLOCOS).fusion(fusion).maxCycles(MAX_CYCLES);
+                VerificadorDiferencial verificador = new VerificadorDiferencial(config, mode);
+                int compiled = 0;
+                for (int index = 0; index < CASES; index++) {
+                    short[] program = program(new SplittableRandom(index));
+                    VerificadorDiferencial.Divergencia divergencia = verificador.verify(program, null, null);
+                    Testes.check(divergencia == null, mode + (fusion ? " com fusão" : " sem fusão")
+                            + ", caso " + index + ":\n" + divergencia);
+                    // uma volta tem ao menos 4 instruções
+                    if (verificador.getCycles() > 4L * MotorBlocos.COMPILE_THRESHOLD) {
+                        compiled++;
+                    }
+                }
+                Testes.check(compiled >= CASES / 2, "só " + compiled + " casos passaram do limiar de compilação");
+            }
+        }
+    }
+
+    // R7 contador de voltas, R6 = 1, R5 condição, R4 divisor, R3 endereço; o corpo escreve
+    // em R0 a R2 e, às vezes, decrementa R4 ou avança R3
+    private static short[] program(SplittableRandom rnd) {
+        List<Short> code = new ArrayList<>();
+        // imediatos têm 10 bits: voltas e divisor são multiplicados por 4
+        code.add(Instrucao.encodeI(3, 5, 4));
+        code.add(Instrucao.encodeI(3, 7, 300 + rnd.nextInt(400)));
+        code.add(Instrucao.encodeR(2, 7, 7, 5));
+        code.add(Instrucao.encodeI(3, 4, 1 + rnd.nextInt(1000)));
+        code.add(Instrucao.encodeR(2, 4, 4, 5));
+        code.add(Instrucao.encodeI(3, 6, 1));
+        code.add(Instrucao.encodeI(3, 3, rnd.nextInt(64)));
+        if (rnd.nextInt(8) == 0) {
+            code.add(Instrucao.encodeR(1, 3, 3, 7)); // endereço negativo: falha já na primeira volta
+        }
+        int loop = code.size();
+        int length = 1 + rnd.nextInt(12);
+        int split = rnd.nextBoolean() ? rnd.nextInt(length) : -1;
+        for (int k = 0; k < length; k++) {
+            if (k == split) {
+                code.add(Instrucao.encodeI(0, 0, code.size() + 1)); // JUMP para a instrução seguinte
+            }
+            code.add(body(rnd));
+        }
+        code.add(Instrucao.encodeR(1, 7, 7, 6));      // R7--
+        code.add(Instrucao.encodeR(5, 5, 7, 6));      // R5 = R7 != 1
+        code.add(Instrucao.encodeI(1, 5, loop));
+        code.add(Instrucao.encodeI(3, 0, 0));
+        code.add(Instrucao.encodeR(63, 0, 0, 0));     // exit
+        short[] program = new short[code.size()];
+        for (int k = 0; k < program.length; k++) {
+            program[k] = code.get(k);
+        }
+        return program;
+    }
+
+    private static short body(SplittableRandom rnd) {
+        int rd = rnd.nextInt(3);
+        int rs1 = rnd.nextInt(8);
+        int rs2 = rnd.nextInt(8);
+        switch (rnd.nextInt(12)) {
+            case 0:
+                return Instrucao.encodeR(3, rd, rs1, 4);  // DIV por R4
+            case 1:
+                return Instrucao.encodeR(1, 4, 4, 6);     // R4--: o DIV falha quando chega a zero
+            case 2:
+                return Instrucao.encodeR(15, rd, 3, 0);   // LOAD MEM[R3]
+            case 3:
+                return Instrucao.encodeR(16, 0, 3, rs2);  // STORE MEM[R3]
+            case 4:
+                // R3 avança; somar R4 passa de 32767 (endereço negativo) em poucas voltas
+                return Instrucao.encodeR(0, 3, 3, rnd.nextInt(4) == 0 ? 4 : 6);
+            case 5:
+                return Instrucao.encodeI(3, rd, rnd.nextInt(1 << 10));
+            case 6:
+                return Instrucao.encodeR(4 + rnd.nextInt(2), rd, rs1, rs2); // CMP_EQ, CMP_NEQ
+            default:
+                return Instrucao.encodeR(rnd.nextInt(3), rd, rs1, rs2); // ADD, SUB, MUL
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import java.util.concurrent.CountDownLatch;
+
+// Opções que supõem um único núcleo são recusadas antes da execução, em vez de falharem na
+// MemoriaCompartilhada ou serem desligadas em silêncio
+public class TesteMulticore {
+    // cada núcleo soma 1 em MEM[0] com a atômica e encerra
+    private static final short[] PROGRAM = {
+            Instrucao.encodeI(3, 1, 0),     // 0: MOV R1, 0
+            Instrucao.encodeI(3, 2, 1),     // 1: MOV R2, 1
+            Instrucao.encodeI(3, 0, 14),    // 2: MOV R0, 14
+            Instrucao.encodeR(63, 0, 0, 0), // 3: SYSCALL (MEM[R1] += R2)
+            Instrucao.encodeI(3, 0, 0),     // 4: MOV R0, 0
+            Instrucao.encodeR(63, 0, 0, 0), // 5: SYSCALL exit
+    };
+
+    public static void main(String[] args) throws Exception {
+        opcoesDeUmNucleoSaoRecusadas();
+        nucleosCompartilhamMemoria();
+        paginasAlocadasNaPrimeiraEscrita();
+        paginaCriadaPorVariosNucleos();
+        System.out.println("TesteMulticore: ok");
+    }
+
+    private static void opcoesDeUmNucleoSaoRecusadas() throws Exception {
+        rejected(new Configuracao().loopDetection(true), "Detecção de laço");
+        rejected(new Configuracao().history(true), "Histórico");
+        rejected(new Configuracao().tracePath("nucleos.trace"), "Trace");
+    }
+
+    private static void rejected(Configuracao config, String message) throws Exception {
+        try {
+            new SistemaMulticore(new MemoriaCompartilhada(PROGRAM, Memoria.DEFAULT_ADDRESS_BITS), 2, config);
+        } catch (IllegalArgumentException e) {
+            Testes.check(e.getMessage().startsWith(message), e.getMessage());
+            return;
+        }
+        throw new AssertionError("opção aceita: " + message);
+    }
+
+    private static void nucleosCompartilhamMemoria() throws Exception {
+        SistemaMulticore sistema = new SistemaMulticore(
+                new MemoriaCompartilhada(PROGRAM, Memoria.DEFAULT_ADDRESS_BITS), 4, new Configuracao());
+        for (ResultadoTarefa result : sistema.run()) {
+            Testes.checkEquals(StatusExecucao.ENCERRADO, result.getStatus(), result.getName());
+        }
+        Testes.checkEquals((short) 4, sistema.getMemoria().readData(0), "contador");
+    }
+
+    // com 24 bits a área de dados tem 16M palavras, mas só as páginas escritas existem
+    private static void paginasAlocadasNaPrimeiraEscrita() throws Exception {
+        MemoriaCompartilhada memoria = new MemoriaCompartilhada(PROGRAM, Memoria.MAX_ADDRESS_BITS);
+        int program = memoria.getResidentPages();
+        Testes.checkEquals((short) 0, memoria.readData(5_000_000), "leitura de página ausente");
+        Testes.checkEquals(program, memoria.getResidentPages(), "páginas depois da leitura");
+        memoria.writeData(5_000_000, (short) 7);
+        memoria.writeData(5_000_001, (short) 8);
+        Testes.checkEquals(program + 1, memoria.getResidentPages(), "páginas depois das escritas");
+        Testes.checkEquals((short) 7, memoria.readData(5_000_000), "palavra escrita");
+    }
+
+    // núcleos que somam ao mesmo tempo numa página ainda ausente: se cada um instalasse a sua
+    // página, somas se perderiam
+    private static void paginaCriadaPorVariosNucleos() throws Exception {
+        int threads = 8;
+        for (int round = 0; round < 200; round++) {
+            MemoriaCompartilhada memoria = new MemoriaCompartilhada(PROGRAM, Memoria.DEFAULT_ADDRESS_BITS);
+            int address = 4096 + round;
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    memoria.getAndAddData(address, (short) 1);
+                });
+                workers[t].start();
+            }
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            Testes.checkEquals((short) threads, memoria.readData(address), "soma na rodada " + round);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+public class TesteTempoLimite {
+    private static final long BUDGET_MILLIS = 200;
+    private static final long MAX_ELAPSED_MILLIS = 900; // cada sono do guest é de 1 s
+
+    // laço que dorme 1 s por volta: sem o orçamento somado entre as fatias, nunca termina
+    private static final short[] SLEEPER = {
+            Instrucao.encodeI(3, 0, 6),    // 0: MOV R0, 6 (sleep)
+            Instrucao.encodeI(3, 1, 1),    // 1: MOV R1, 1
+            Instrucao.encodeR(63, 0, 0, 0), // 2: SYSCALL
+            Instrucao.encodeI(0, 0, 0),    // 3: JUMP 0
+    };
+
+    public static void main(String[] args) throws Exception {
+        sonoAgendadoEntreRetomadas();
+        sonoRealRespeitaOrcamento();
+        loteAgendado();
+        orcamentoRenovadoNoRestore();
+        System.out.println("TesteTempoLimite: ok");
+    }
+
+    private static void sonoAgendadoEntreRetomadas() throws Exception {
+        Processador processador = Testes.processador(SLEEPER,
+                new Configuracao().clock(ModoRelogio.AGENDADO).maxTimeMillis(BUDGET_MILLIS));
+        long start = System.nanoTime();
+        StatusExecucao status;
+        int slices = 0;
+        while ((status = processador.runUntilHalt()) == StatusExecucao.AGUARDANDO) {
+            LockSupport.parkNanos(processador.getWakeUpDelayNanos());
+            slices++;
+        }
+        checkTimedOut(status, start, "AGENDADO");
+        Testes.check(slices >= 1, "a execução deveria ter sido retomada");
+    }
+
+    private static void sonoRealRespeitaOrcamento() throws Exception {
+        Processador processador = Testes.processador(SLEEPER,
+                new Configuracao().clock(ModoRelogio.REAL).maxTimeMillis(BUDGET_MILLIS));
+        long start = System.nanoTime();
+        checkTimedOut(processador.runUntilHalt(), start, "REAL");
+    }
+
+    // cada execução a partir do checkpoint tem o orçamento inteiro, não o que sobrou da anterior
+    private static void orcamentoRenovadoNoRestore() throws Exception {
+        Processador processador = Testes.processador(SLEEPER,
+                new Configuracao().clock(ModoRelogio.REAL).maxTimeMillis(BUDGET_MILLIS));
+        Processador.Checkpoint inicio = processador.checkpoint();
+        for (int run = 0; run < 2; run++) {
+            processador.restore(inicio);
+            long start = System.nanoTime();
+            checkTimedOut(processador.runUntilHalt(), start, "REAL após restore " + run);
+        }
+    }
+
+    private static void loteAgendado() throws Exception {
+        ByteBuffer image = ByteBuffer.allocate(SLEEPER.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (short word : SLEEPER) {
+            image.putShort(word);
+        }
+        Path binary = Files.createTempFile("dorminhoco", ".bin");
+        try {
+            Files.write(binary, image.array());
+            ExecutorLote executor = new ExecutorLote(
+                    new Configuracao().clock(ModoRelogio.AGENDADO).maxTimeMillis(BUDGET_MILLIS), 2, false);
+            long start = System.nanoTime();
+            List<ResultadoTarefa> results = executor.runAll(List.of(binary.toString()));
+            checkTimedOut(results.get(0).getStatus(), start, "lote AGENDADO");
+        } finally {
+            Files.deleteIfExists(binary);
+        }
+    }
+
+    private static void checkTimedOut(StatusExecucao status, long start, String caso) {
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        Testes.checkEquals(StatusExecucao.TEMPO_ESGOTADO, status, caso);
+        Testes.check(elapsedMillis >= BUDGET_MILLIS && elapsedMillis < MAX_ELAPSED_MILLIS,
+                caso + ": terminou em " + elapsedMillis + " ms com orçamento de " + BUDGET_MILLIS + " ms");
+    }
+}
@@ -0,0 +1,38 @@
+import java.util.Objects;
+
+// Testes de regressão sem framework: cada classe Teste* tem um main que lança AssertionError na
+// primeira verificação que falha. Para rodar todos:
+//   javac -d out src/*.java test/*.java && java -cp out Testes
+public class Testes {
+    public static void main(String[] args) throws Exception {
+        TesteDetectorLaco.main(args);
+        TesteTempoLimite.main(args);
+        TesteAlocacao.main(args);
+        TesteCacheProgramas.main(args);
+        TesteDecodificadorTrace.main(args);
+        TesteHistorico.main(args);
+        TesteMulticore.main(args);
+        TesteMotorBlocos.main(args);
+        TesteFuzzDiferencial.main(args);
+        TesteLockstep.main(args);
+        System.out.println("Todos os testes passaram");
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    static void checkEquals(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + ": esperado " + expected + ", obtido " + actual);
+        }
+    }
+
+    // processador silencioso com saída capturada
+    static Processador processador(short[] program, Configuracao config) throws ProcessorException {
+        return new Processador(new Memoria(program), new Registrador(),
+                config.verbose(false).saida(new SaidaMemoria()));
+    }
+}